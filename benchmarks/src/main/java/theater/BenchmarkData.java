@@ -0,0 +1,64 @@
+package theater;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the play catalogs and invoices shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    /**
+     * Only the original genres, as in {@code plays.json}.
+     */
+    static final String CLASSIC_MIX = "classic";
+
+    /**
+     * Every genre, including those from {@code new_plays.json}.
+     */
+    static final String ALL_GENRES_MIX = "all";
+
+    private static final long SEED = 207L;
+    private static final int MAX_AUDIENCE = 120;
+
+    private BenchmarkData() {
+
+    }
+
+    static Map<String, Play> plays() {
+        final Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        plays.put("winters-tale", new Play("The Winter's Tale", "pastoral"));
+        return plays;
+    }
+
+    static Invoice invoice(int performances, String genreMix) {
+        final String[] playIDs;
+        if (ALL_GENRES_MIX.equals(genreMix)) {
+            playIDs = new String[] {"hamlet", "othello", "as-like", "henry-v", "winters-tale"};
+        }
+        else {
+            playIDs = new String[] {"hamlet", "othello", "as-like"};
+        }
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final List<Performance> result = new ArrayList<>(performances);
+        for (int i = 0; i < performances; i++) {
+            result.add(new Performance(playIDs[random.nextInt(playIDs.length)], random.nextInt(MAX_AUDIENCE)));
+        }
+        return new Invoice("BigCo", result);
+    }
+
+    static Invoice resolve(Invoice invoice, PlayCatalog catalog) {
+        final List<Performance> result = new ArrayList<>(invoice.getPerformances().size());
+        for (final Performance performance : invoice.getPerformances()) {
+            result.add(catalog.performance(performance.getPlayID(), performance.getAudience()));
+        }
+        return new Invoice(invoice.getCustomer(), result);
+    }
+}
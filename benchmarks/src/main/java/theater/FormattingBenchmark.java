@@ -0,0 +1,50 @@
+package theater;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of formatting one amount with {@code usd()} against the NumberFormat it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattingBenchmark {
+
+    @Param({"65000", "173000", "123456789"})
+    private int amount;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Benchmark
+    public String usd() {
+        return StatementPrinter.usd(amount);
+    }
+
+    @Benchmark
+    public StringBuilder usdIntoBuffer() throws Exception {
+        buffer.setLength(0);
+        UsdFormatter.appendUsd(buffer, amount);
+        return buffer;
+    }
+
+    @Benchmark
+    public String numberFormatBaseline() {
+        return NumberFormat.getCurrencyInstance(Locale.US).format(amount / Constants.PERCENT_FACTOR);
+    }
+}
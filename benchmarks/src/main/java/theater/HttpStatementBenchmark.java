@@ -0,0 +1,91 @@
+package theater;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link StatementServer} under concurrent requests over loopback. Every JMH thread
+ * is one client with a request in flight, so the score is requests per second at that concurrency;
+ * change it with {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class HttpStatementBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int performances;
+
+    @Param({StatementServer.TEXT_PLAIN, StatementServer.TEXT_HTML})
+    private String accept;
+
+    private StatementServer server;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final PlayCatalog catalog = PlayCatalog.of(BenchmarkData.plays());
+        server = StatementServer.start(new InetSocketAddress("localhost", 0), catalog);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final URI uri = URI.create(String.format("http://localhost:%d%s",
+                server.getAddress().getPort(), StatementServer.PATH));
+        request = HttpRequest.newBuilder(uri)
+                .header("Accept", accept)
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(
+                        BenchmarkData.invoice(performances, BenchmarkData.CLASSIC_MIX))))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String statement() throws IOException, InterruptedException {
+        final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(String.format("status %d: %s", response.statusCode(), response.body()));
+        }
+        return response.body();
+    }
+
+    private static String toJson(Invoice invoice) {
+        final StringBuilder result = new StringBuilder("{\"customer\":\"")
+                .append(invoice.getCustomer()).append("\",\"performances\":[");
+        for (int i = 0; i < invoice.getPerformances().size(); i++) {
+            final Performance performance = invoice.getPerformances().get(i);
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"playID\":\"").append(performance.getPlayID())
+                    .append("\",\"audience\":").append(performance.getAudience()).append('}');
+        }
+        return result.append("]}").toString();
+    }
+}
@@ -0,0 +1,66 @@
+package theater;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of pricing every performance of an invoice through the calculator factory versus the
+ * shared strategies of the pricing registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"10", "1000"})
+    private int performances;
+
+    @Param({BenchmarkData.CLASSIC_MIX, BenchmarkData.ALL_GENRES_MIX})
+    private String genreMix;
+
+    private Map<String, Play> plays;
+    private List<Performance> invoicePerformances;
+
+    @Setup
+    public void setUp() {
+        plays = BenchmarkData.plays();
+        invoicePerformances = BenchmarkData.invoice(performances, genreMix).getPerformances();
+    }
+
+    @Benchmark
+    public void calculatorFactory(Blackhole blackhole) {
+        for (final Performance performance : invoicePerformances) {
+            final AbstractPerformanceCalculator calculator = AbstractPerformanceCalculator
+                    .createPerformanceCalculator(performance, plays.get(performance.getPlayID()));
+            blackhole.consume(calculator.amountFor());
+            blackhole.consume(calculator.volumeCredits());
+        }
+    }
+
+    @Benchmark
+    public void pricingRegistry(Blackhole blackhole) {
+        final PricingRegistry registry = PricingRegistry.getDefault();
+        for (final Performance performance : invoicePerformances) {
+            final PricingStrategy pricing = registry.forPlay(plays.get(performance.getPlayID()));
+            blackhole.consume(pricing.amountFor(performance.getAudience()));
+            blackhole.consume(pricing.volumeCredits(performance.getAudience()));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package theater;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of computing statement data and rendering whole statements, by invoice size and genre mix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementBenchmark {
+
+    @Param({"1", "10", "1000", "10000"})
+    private int performances;
+
+    @Param({BenchmarkData.CLASSIC_MIX, BenchmarkData.ALL_GENRES_MIX})
+    private String genreMix;
+
+    private Map<String, Play> plays;
+    private PlayCatalog catalog;
+    private Invoice invoice;
+    private Invoice catalogInvoice;
+
+    @Setup
+    public void setUp() {
+        plays = BenchmarkData.plays();
+        catalog = PlayCatalog.of(plays);
+        invoice = BenchmarkData.invoice(performances, genreMix);
+        catalogInvoice = BenchmarkData.resolve(invoice, catalog);
+    }
+
+    @Benchmark
+    public StatementData statementData() {
+        return new StatementData(invoice, plays);
+    }
+
+    @Benchmark
+    public StatementData catalogStatementData() {
+        return new StatementData(catalogInvoice, catalog);
+    }
+
+    @Benchmark
+    public ColumnarStatementData columnarStatementData() {
+        return new ColumnarStatementData(catalogInvoice, catalog, PricingRegistry.getDefault());
+    }
+
+    @Benchmark
+    public String plainTextStatement() {
+        return new StatementPrinter(invoice, plays).statement();
+    }
+
+    @Benchmark
+    public String htmlStatement() {
+        return new HTMLStatementPrinter(invoice, plays).statement();
+    }
+}
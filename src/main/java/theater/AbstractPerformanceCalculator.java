@@ -2,15 +2,22 @@ package theater;
 
 /**
  * Abstract base calculator for a performance. Subclasses implement type-specific behaviour.
+ * The pricing itself is delegated to the shared, stateless {@link PricingStrategy} for the play type.
  */
 public abstract class AbstractPerformanceCalculator {
 
     private final Performance performance;
     private final Play play;
+    private final PricingStrategy pricing;
 
     public AbstractPerformanceCalculator(Performance performance, Play play) {
+        this(performance, play, null);
+    }
+
+    protected AbstractPerformanceCalculator(Performance performance, Play play, PricingStrategy pricing) {
         this.performance = performance;
         this.play = play;
+        this.pricing = pricing;
     }
 
     public Performance getPerformance() {
@@ -21,85 +28,63 @@ public abstract class AbstractPerformanceCalculator {
         return play;
     }
 
+    /**
+     * Returns the pricing strategy used by this calculator.
+     * @return the strategy given at construction, or the default one for the play type
+     * @throws UnknownPlayTypeException if the play type is unknown
+     */
+    public PricingStrategy getPricing() {
+        PricingStrategy result = pricing;
+        if (result == null) {
+            result = PricingRegistry.getDefault().forPlay(play);
+        }
+        return result;
+    }
+
     /**
      * Calculate the amount for this performance.
      * Subclasses may override to provide type-specific calculation.
     * @return amount in cents
-    * @throws RuntimeException if the play type is unknown
+    * @throws UnknownPlayTypeException if the play type is unknown
      */
     public int amountFor() {
-        int result = 0;
-        final String type = play.getType();
-        if (Constants.TYPE_TRAGEDY.equals(type)) {
-            result = Constants.TRAGEDY_BASE_AMOUNT;
-            if (performance.getAudience() > Constants.TRAGEDY_AUDIENCE_THRESHOLD) {
-                result += Constants.TRAGEDY_OVER_BASE_CAPACITY_PER_PERSON
-                        * (performance.getAudience() - Constants.TRAGEDY_AUDIENCE_THRESHOLD);
-            }
-        }
-        else if (Constants.TYPE_COMEDY.equals(type)) {
-            result = Constants.COMEDY_BASE_AMOUNT;
-            if (performance.getAudience() > Constants.COMEDY_AUDIENCE_THRESHOLD) {
-                result += Constants.COMEDY_OVER_BASE_CAPACITY_AMOUNT
-                        + (Constants.COMEDY_OVER_BASE_CAPACITY_PER_PERSON
-                        * (performance.getAudience() - Constants.COMEDY_AUDIENCE_THRESHOLD));
-            }
-            result += Constants.COMEDY_AMOUNT_PER_AUDIENCE * performance.getAudience();
-        }
-        else if (Constants.TYPE_HISTORY.equals(type)) {
-            result = Constants.HISTORY_BASE_AMOUNT;
-            if (performance.getAudience() > Constants.HISTORY_AUDIENCE_THRESHOLD) {
-                result += Constants.HISTORY_OVER_BASE_CAPACITY_PER_PERSON
-                        * (performance.getAudience() - Constants.HISTORY_AUDIENCE_THRESHOLD);
-            }
-        }
-        else if (Constants.TYPE_PASTORAL.equals(type)) {
-            result = Constants.PASTORAL_BASE_AMOUNT;
-            if (performance.getAudience() > Constants.PASTORAL_AUDIENCE_THRESHOLD) {
-                result += Constants.PASTORAL_OVER_BASE_CAPACITY_PER_PERSON
-                        * (performance.getAudience() - Constants.PASTORAL_AUDIENCE_THRESHOLD);
-            }
-        }
-        else {
-            throw new RuntimeException(String.format("unknown type: %s", play.getType()));
-        }
-        return result;
+        return getPricing().amountFor(performance.getAudience());
     }
 
     /**
      * Calculate volume credits for this performance. Subclasses may override.
      * @return volume credits
+     * @throws UnknownPlayTypeException if the play type is unknown
      */
     public int volumeCredits() {
-        int result = Math.max(performance.getAudience() - Constants.BASE_VOLUME_CREDIT_THRESHOLD, 0);
-        if ("comedy".equals(play.getType())) {
-            result += performance.getAudience() / Constants.COMEDY_EXTRA_VOLUME_FACTOR;
-        }
-        return result;
+        return getPricing().volumeCredits(performance.getAudience());
     }
 
     /**
      * Factory to create appropriate calculator subtype for the given play.
+     * Prefer {@link PricingRegistry#forPlay(Play)} on hot paths: it returns a shared strategy
+     * instead of allocating a calculator per performance.
      * @param performance performance
      * @param play play
      * @return a calculator instance
+     * @throws UnknownPlayTypeException if the play type is unknown
      */
     public static AbstractPerformanceCalculator createPerformanceCalculator(
             final Performance performance, 
             final Play play) {
-        final String type = play.getType();
-        if ("tragedy".equals(type)) {
+        final PricingStrategy pricing = PricingRegistry.getDefault().forPlay(play);
+        if (pricing == StandardPricing.TRAGEDY) {
             return new TragedyCalculator(performance, play);
         }
-        if ("comedy".equals(type)) {
+        if (pricing == StandardPricing.COMEDY) {
             return new ComedyCalculator(performance, play);
         }
-        if ("history".equals(type)) {
+        if (pricing == StandardPricing.HISTORY) {
             return new HistoryCalculator(performance, play);
         }
-        if ("pastoral".equals(type)) {
+        if (pricing == StandardPricing.PASTORAL) {
             return new PastoralCalculator(performance, play);
         }
-        return new TragedyCalculator(performance, play);
+        return new GenericCalculator(performance, play, pricing);
     }
 }
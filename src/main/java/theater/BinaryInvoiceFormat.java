@@ -0,0 +1,40 @@
+package theater;
+
+/**
+ * Layout of the binary invoice file written by {@link BinaryInvoiceWriter}.
+ *
+ * <pre>
+ * header          magic:int32  version:int32  invoiceCount:int64  customerTableOffset:int64
+ * play table      count:varint  (playID:string  name:string  type:string) * count
+ * invoices        (customerIndex:varint  performanceCount:varint
+ *                  (playIndex:varint  audience:zigzag-varint) * performanceCount) * invoiceCount
+ * customer table  count:varint  customer:string * count
+ * </pre>
+ *
+ * Fixed-width fields are big-endian. Strings are a varint byte length followed by UTF-8 bytes.
+ * Plays are stored in {@link PlayCatalog} index order, so the play indexes in the records are
+ * catalog indexes. The invoice count and customer table offset are only known once the last
+ * invoice has been written; a file whose offset is still zero was not closed.
+ */
+final class BinaryInvoiceFormat {
+
+    static final int MAGIC = 0x54494E56;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int MAX_VARINT_BYTES = 5;
+
+    static final int VARINT_BITS = 7;
+    static final int VARINT_PAYLOAD = 0x7F;
+    static final int VARINT_CONTINUE = 0x80;
+
+    private BinaryInvoiceFormat() {
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> (Integer.SIZE - 1));
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
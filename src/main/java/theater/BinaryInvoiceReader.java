@@ -0,0 +1,252 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads files written by {@link BinaryInvoiceWriter} through memory-mapped windows of the file, so
+ * files of any size are read without copying them onto the heap. The play and customer tables are
+ * decoded once when the file is opened; every invoice then shares their Strings, and its performances
+ * carry their catalog index, so {@link StatementData} resolves plays without hashing.
+ * Instances are not thread-safe.
+ */
+public final class BinaryInvoiceReader implements Closeable {
+
+    /**
+     * Default number of bytes mapped at a time.
+     */
+    public static final long DEFAULT_WINDOW_SIZE = 1L << 28;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final long invoiceCount;
+    private final long customerTableOffset;
+    private final PlayCatalog catalog;
+    private final String[] customers;
+    private final long invoicesOffset;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private BinaryInvoiceReader(FileChannel channel, long windowSize) throws IOException {
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.size = channel.size();
+        if (size < BinaryInvoiceFormat.HEADER_SIZE) {
+            throw new IOException("not a binary invoice file: too short");
+        }
+        seek(0);
+        final ByteBuffer header = window.duplicate();
+        if (header.getInt() != BinaryInvoiceFormat.MAGIC) {
+            throw new IOException("not a binary invoice file: bad magic number");
+        }
+        final int version = header.getInt();
+        if (version != BinaryInvoiceFormat.VERSION) {
+            throw new IOException(String.format("unsupported binary invoice version: %d", version));
+        }
+        this.invoiceCount = header.getLong();
+        this.customerTableOffset = header.getLong();
+        if (customerTableOffset < BinaryInvoiceFormat.HEADER_SIZE || customerTableOffset > size) {
+            throw new IOException("incomplete binary invoice file: the writer was not closed");
+        }
+
+        seek(BinaryInvoiceFormat.HEADER_SIZE);
+        final int playCount = readVarint();
+        final Map<String, Play> plays = new HashMap<>();
+        final List<String> playIDs = new ArrayList<>(playCount);
+        for (int i = 0; i < playCount; i++) {
+            final String playID = readString();
+            plays.put(playID, new Play(readString(), readString()));
+            playIDs.add(playID);
+        }
+        this.invoicesOffset = position();
+        this.catalog = PlayCatalog.of(plays);
+        for (int i = 0; i < playCount; i++) {
+            if (!playIDs.get(i).equals(catalog.getPlayID(i))) {
+                throw new IOException("corrupt binary invoice file: plays are not in catalog order");
+            }
+        }
+
+        seek(customerTableOffset);
+        this.customers = new String[readVarint()];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = readString();
+        }
+    }
+
+    /**
+     * Opens a binary invoice file.
+     *
+     * @param file the file
+     * @return the reader
+     * @throws IOException if the file cannot be read or is not a complete binary invoice file
+     */
+    public static BinaryInvoiceReader open(Path file) throws IOException {
+        return open(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a binary invoice file, mapping at most windowSize bytes at a time.
+     *
+     * @param file the file
+     * @param windowSize the largest number of bytes mapped at once
+     * @return the reader
+     * @throws IOException if the file cannot be read or is not a complete binary invoice file
+     * @throws IllegalArgumentException if windowSize is smaller than the file header
+     */
+    public static BinaryInvoiceReader open(Path file, long windowSize) throws IOException {
+        if (windowSize < BinaryInvoiceFormat.HEADER_SIZE || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("window size out of range: %d", windowSize));
+        }
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new BinaryInvoiceReader(channel, windowSize);
+        }
+        catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the plays stored in the file.
+     *
+     * @return the catalog; its indexes are the play indexes in the file
+     */
+    public PlayCatalog getCatalog() {
+        return catalog;
+    }
+
+    public long getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    /**
+     * Reads every invoice in the order they were written.
+     *
+     * @param consumer receives each invoice
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public void readInvoices(Consumer<? super Invoice> consumer) throws IOException {
+        seek(invoicesOffset);
+        for (long i = 0; i < invoiceCount; i++) {
+            consumer.accept(readInvoice());
+        }
+        if (position() != customerTableOffset) {
+            throw new IOException("corrupt binary invoice file: records do not end at the customer table");
+        }
+    }
+
+    /**
+     * Reads every invoice and computes its statement data.
+     *
+     * @param consumer receives the statement data of each invoice
+     * @throws IOException if the file cannot be read or is corrupt
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public void readStatements(Consumer<? super StatementData> consumer) throws IOException {
+        readInvoices(invoice -> consumer.accept(new StatementData(invoice, catalog)));
+    }
+
+    private Invoice readInvoice() throws IOException {
+        final int customer = readVarint();
+        if (customer < 0 || customer >= customers.length) {
+            throw new IOException(String.format("corrupt binary invoice file: customer index %d", customer));
+        }
+        final int count = readVarint();
+        if (count < 0) {
+            throw new IOException(String.format("corrupt binary invoice file: performance count %d", count));
+        }
+        final List<Performance> performances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int playIndex = readVarint();
+            if (playIndex < 0 || playIndex >= catalog.size()) {
+                throw new IOException(String.format("corrupt binary invoice file: play index %d", playIndex));
+            }
+            final int audience = BinaryInvoiceFormat.unzigzag(readVarint());
+            performances.add(new Performance(catalog.getPlayID(playIndex), audience, playIndex));
+        }
+        return new Invoice(customers[customer], performances);
+    }
+
+    private long position() {
+        return windowStart + window.position();
+    }
+
+    private void seek(long position) throws IOException {
+        if (window != null && position >= windowStart && position - windowStart <= window.limit()) {
+            window.position((int) (position - windowStart));
+        }
+        else {
+            map(position);
+        }
+    }
+
+    private void nextWindow() throws IOException {
+        final long next = position();
+        if (next >= size) {
+            throw new EOFException("unexpected end of binary invoice file");
+        }
+        map(next);
+    }
+
+    private void map(long position) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+        windowStart = position;
+    }
+
+    private byte readByte() throws IOException {
+        if (!window.hasRemaining()) {
+            nextWindow();
+        }
+        return window.get();
+    }
+
+    private int readVarint() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < BinaryInvoiceFormat.MAX_VARINT_BYTES * BinaryInvoiceFormat.VARINT_BITS;
+             shift += BinaryInvoiceFormat.VARINT_BITS) {
+            final byte next = readByte();
+            result |= (next & BinaryInvoiceFormat.VARINT_PAYLOAD) << shift;
+            if ((next & BinaryInvoiceFormat.VARINT_CONTINUE) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("corrupt binary invoice file: varint too long");
+    }
+
+    private String readString() throws IOException {
+        final int length = readVarint();
+        if (length < 0 || length > size - position()) {
+            throw new IOException(String.format("corrupt binary invoice file: string length %d", length));
+        }
+        final byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            if (!window.hasRemaining()) {
+                nextWindow();
+            }
+            final int chunk = Math.min(window.remaining(), length - copied);
+            window.get(bytes, copied, chunk);
+            copied += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,243 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes invoices in the compact binary format described by {@link BinaryInvoiceFormat}, to be read
+ * back with {@link BinaryInvoiceReader}. Play IDs are stored as catalog indexes and each customer
+ * name is stored once. The file is complete only after {@link #close()}. Instances are not thread-safe.
+ */
+public final class BinaryInvoiceWriter implements Closeable {
+
+    /**
+     * Size of the write buffer.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final PlayCatalog catalog;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<String, Integer> customerIndexes = new HashMap<>();
+    private final List<String> customers = new ArrayList<>();
+    private long invoiceCount;
+    private boolean closed;
+    private boolean failed;
+
+    private BinaryInvoiceWriter(FileChannel channel, PlayCatalog catalog) throws IOException {
+        this.channel = channel;
+        this.catalog = catalog;
+        // the header is rewritten with the real count and offset on close
+        buffer.put(new byte[BinaryInvoiceFormat.HEADER_SIZE]);
+        putVarint(catalog.size());
+        for (int i = 0; i < catalog.size(); i++) {
+            putString(catalog.getPlayID(i));
+            putString(catalog.getPlay(i).getName());
+            putString(catalog.getPlay(i).getType());
+        }
+    }
+
+    /**
+     * Creates or truncates a binary invoice file.
+     *
+     * @param file the file to write
+     * @param catalog the plays that the invoices refer to; they are stored in the file
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static BinaryInvoiceWriter create(Path file, PlayCatalog catalog) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new BinaryInvoiceWriter(channel, catalog);
+        }
+        catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Converts a JSON invoice dump into a binary invoice file.
+     *
+     * @param json the UTF-8 encoded JSON invoices; it is not closed
+     * @param catalog the plays that the invoices refer to
+     * @param file the binary file to write
+     * @return the number of invoices converted
+     * @throws IOException if the JSON cannot be read or the file cannot be written
+     * @throws UnknownPlayException if an invoice refers to a play that is not in the catalog
+     */
+    public static long convert(InputStream json, PlayCatalog catalog, Path file) throws IOException {
+        final BinaryInvoiceWriter writer = create(file, catalog);
+        try {
+            InvoiceJsonReader.readInvoices(json, catalog, invoice -> {
+                try {
+                    writer.write(invoice);
+                }
+                catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+        catch (UncheckedIOException exception) {
+            writer.abandon(file);
+            throw exception.getCause();
+        }
+        catch (IOException | RuntimeException exception) {
+            writer.abandon(file);
+            throw exception;
+        }
+        writer.close();
+        return writer.invoiceCount;
+    }
+
+    /**
+     * Appends one invoice. Every play is checked before anything is written, so a rejected invoice
+     * leaves the file as it was.
+     *
+     * @param invoice the invoice
+     * @throws IOException if the file cannot be written; the writer is then unusable and the file
+     *     is left without a header
+     * @throws UnknownPlayException if a performance refers to a play that is not in the catalog
+     */
+    public void write(Invoice invoice) throws IOException {
+        if (closed) {
+            throw new IOException("writer is closed");
+        }
+        if (failed) {
+            throw new IOException("writer failed on an earlier write");
+        }
+        final List<Performance> performances = invoice.getPerformances();
+        for (final Performance performance : performances) {
+            if (catalog.indexOf(performance) < 0) {
+                throw new UnknownPlayException(performance.getPlayID());
+            }
+        }
+        Integer customer = customerIndexes.get(invoice.getCustomer());
+        if (customer == null) {
+            customer = customers.size();
+            customerIndexes.put(invoice.getCustomer(), customer);
+            customers.add(invoice.getCustomer());
+        }
+        try {
+            putVarint(customer);
+            putVarint(performances.size());
+            for (final Performance performance : performances) {
+                putVarint(catalog.indexOf(performance));
+                putVarint(BinaryInvoiceFormat.zigzag(performance.getAudience()));
+            }
+        }
+        catch (IOException exception) {
+            failed = true;
+            throw exception;
+        }
+        invoiceCount++;
+    }
+
+    /**
+     * Closes the file without completing it and deletes it.
+     */
+    private void abandon(Path file) throws IOException {
+        failed = true;
+        try {
+            close();
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public long getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    private void putVarint(int value) throws IOException {
+        if (buffer.remaining() < BinaryInvoiceFormat.MAX_VARINT_BYTES) {
+            flush();
+        }
+        int rest = value;
+        while ((rest & ~BinaryInvoiceFormat.VARINT_PAYLOAD) != 0) {
+            buffer.put((byte) (rest & BinaryInvoiceFormat.VARINT_PAYLOAD | BinaryInvoiceFormat.VARINT_CONTINUE));
+            rest >>>= BinaryInvoiceFormat.VARINT_BITS;
+        }
+        buffer.put((byte) rest);
+    }
+
+    private void putString(String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length);
+        if (bytes.length > buffer.remaining()) {
+            flush();
+        }
+        if (bytes.length > buffer.remaining()) {
+            writeFully(ByteBuffer.wrap(bytes));
+        }
+        else {
+            buffer.put(bytes);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    /**
+     * Writes the customer table, completes the header and closes the file. If an earlier write
+     * failed, the file is closed with its header still blank, so readers reject it.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (failed) {
+            channel.close();
+            return;
+        }
+        try {
+            flush();
+            final long customerTableOffset = channel.position();
+            putVarint(customers.size());
+            for (final String customer : customers) {
+                putString(customer);
+            }
+            flush();
+
+            final ByteBuffer header = ByteBuffer.allocate(BinaryInvoiceFormat.HEADER_SIZE);
+            header.putInt(BinaryInvoiceFormat.MAGIC)
+                    .putInt(BinaryInvoiceFormat.VERSION)
+                    .putLong(invoiceCount)
+                    .putLong(customerTableOffset)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+        finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,690 @@
+package theater;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * Resumable statement run over an invoice JSON file. One pass over the input partitions the
+ * invoices into per-shard input files by the hash of their customer; the shards are then rendered
+ * in parallel, on threads or in separate JVMs, each reading only its own file. Each shard writes its
+ * statements, tagged with their position in the input, to its own file in the work directory,
+ * forces it to disk and then writes a done marker. The split is checkpointed the same way. A
+ * restarted run skips the split and every shard with a marker, and the shard files are merged by
+ * position, so the output is the same no matter how often the run was interrupted.
+ *
+ * <p>Run from the command line with {@code key=value}
+ * arguments: {@code plays}, {@code invoices}, {@code work} and {@code output} are required, and
+ * {@code shards}, {@code parallelism}, {@code format=text|html} and {@code processes=true} are
+ * optional. {@code shard=<n>} renders that one shard and is how child processes are started; they
+ * inherit this JVM's {@code theater.*} system properties.</p>
+ */
+public final class CheckpointedBatchRunner {
+
+    /**
+     * Default number of shards.
+     */
+    public static final int DEFAULT_SHARDS = 16;
+
+    private static final String MANIFEST = "run.properties";
+    private static final String SHARD_FILE = "shard-%05d.%s";
+    private static final String SPLIT_DONE = "split.done";
+    private static final String INPUT = "in";
+    private static final String OUTPUT = "out";
+    private static final String PARTIAL = "part";
+    private static final String DONE = "done";
+    private static final String COUNT_KEY = "statements";
+    private static final String PROPERTY_PREFIX = "theater.";
+    private static final String TEXT = "text";
+    private static final String HTML = "html";
+
+    private final Path playsFile;
+    private final Path invoicesFile;
+    private final Path workDirectory;
+    private final int shards;
+    private final int parallelism;
+    private final String format;
+    private final boolean processes;
+
+    private CheckpointedBatchRunner(Builder builder) {
+        this.playsFile = builder.playsFile;
+        this.invoicesFile = builder.invoicesFile;
+        this.workDirectory = builder.workDirectory;
+        this.shards = builder.shards;
+        this.parallelism = builder.parallelism;
+        this.format = builder.format;
+        this.processes = builder.processes;
+    }
+
+    /**
+     * Starts building a runner.
+     *
+     * @param playsFile the plays JSON file
+     * @param invoicesFile the invoices JSON file; it must not change between restarts
+     * @param workDirectory where shard files and markers are kept; it is created if needed
+     * @return the builder
+     */
+    public static Builder builder(Path playsFile, Path invoicesFile, Path workDirectory) {
+        return new Builder(playsFile, invoicesFile, workDirectory);
+    }
+
+    /**
+     * Renders every shard that is not done yet and merges all shards into the output file,
+     * which is replaced atomically.
+     *
+     * @param output the file that receives the statements in input order
+     * @return what the run did
+     * @throws IOException if a file cannot be read or written, or a child process fails
+     * @throws RuntimeException if an invoice refers to an unknown play or type
+     */
+    public Result run(Path output) throws IOException {
+        Files.createDirectories(workDirectory);
+        checkManifest();
+        split();
+        final List<Integer> pending = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            if (!Files.exists(shardFile(shard, DONE))) {
+                pending.add(shard);
+            }
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism,
+                Math.max(pending.size(), 1)));
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final int shard : pending) {
+                futures.add(executor.submit(() -> {
+                    if (processes) {
+                        runShardProcess(shard);
+                    }
+                    else {
+                        runShard(shard);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                await(future);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return new Result(pending.size(), shards - pending.size(), merge(output));
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for shards", exception);
+        }
+        catch (ExecutionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Records the settings that shard files depend on, and refuses a work directory that was
+     * used with different ones.
+     */
+    private void checkManifest() throws IOException {
+        final Properties expected = new Properties();
+        expected.setProperty("invoices", invoicesFile.toAbsolutePath().toString());
+        expected.setProperty("invoicesSize", String.valueOf(Files.size(invoicesFile)));
+        expected.setProperty("invoicesModified", String.valueOf(Files.getLastModifiedTime(invoicesFile).toMillis()));
+        expected.setProperty("plays", playsFile.toAbsolutePath().toString());
+        expected.setProperty("playsSize", String.valueOf(Files.size(playsFile)));
+        expected.setProperty("playsModified", String.valueOf(Files.getLastModifiedTime(playsFile).toMillis()));
+        expected.setProperty("shards", String.valueOf(shards));
+        expected.setProperty("format", format);
+        for (final Map.Entry<String, String> property : forwardedProperties().entrySet()) {
+            expected.setProperty("property." + property.getKey(), property.getValue());
+        }
+        final Path manifest = workDirectory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            final Properties actual = new Properties();
+            try (InputStream input = Files.newInputStream(manifest)) {
+                actual.load(input);
+            }
+            if (!expected.equals(actual)) {
+                throw new IOException(String.format("work directory %s belongs to a different run", workDirectory));
+            }
+            return;
+        }
+        final Path partial = workDirectory.resolve(MANIFEST + "." + PARTIAL);
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            expected.store(Channels.newOutputStream(channel), null);
+            channel.force(true);
+        }
+        commit(partial, manifest);
+    }
+
+    /**
+     * Partitions the input into one file per shard in a single pass, unless that was done by an
+     * earlier run. Each record is (position, customer, performance count, (play ID, audience)...).
+     */
+    private void split() throws IOException {
+        final Path done = workDirectory.resolve(SPLIT_DONE);
+        if (Files.exists(done)) {
+            return;
+        }
+        final List<ShardInputWriter> writers = new ArrayList<>(shards);
+        try {
+            for (int shard = 0; shard < shards; shard++) {
+                writers.add(new ShardInputWriter(shardFile(shard, INPUT + "." + PARTIAL)));
+            }
+            final long[] sequence = new long[1];
+            try (InputStream input = Files.newInputStream(invoicesFile)) {
+                InvoiceJsonReader.readInvoices(input, invoice ->
+                        writers.get(shardOf(invoice.getCustomer(), shards)).write(sequence[0]++, invoice));
+            }
+            catch (UncheckedIOException exception) {
+                throw exception.getCause();
+            }
+            for (final ShardInputWriter writer : writers) {
+                writer.finish();
+            }
+        }
+        finally {
+            for (final ShardInputWriter writer : writers) {
+                writer.close();
+            }
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            commit(shardFile(shard, INPUT + "." + PARTIAL), shardFile(shard, INPUT));
+        }
+        writeMarker(done, 0);
+    }
+
+    /**
+     * Renders one shard in this JVM, unless it is already done. The input must already have been
+     * split by {@link #run(Path)}.
+     *
+     * @param shard the shard, from 0 to shards - 1
+     * @return the number of statements in the shard
+     * @throws IOException if a file cannot be read or written, or the input has not been split
+     * @throws RuntimeException if an invoice refers to an unknown play or type
+     */
+    public long runShard(int shard) throws IOException {
+        if (shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException(String.format("shard out of range: %d", shard));
+        }
+        final Path done = shardFile(shard, DONE);
+        if (Files.exists(done)) {
+            return readCount(done);
+        }
+        if (!Files.exists(workDirectory.resolve(SPLIT_DONE))) {
+            throw new IOException(String.format("the input in %s has not been split into shards", workDirectory));
+        }
+        final PlayCatalog catalog;
+        try (InputStream input = Files.newInputStream(playsFile)) {
+            catalog = PlayCatalog.of(InvoiceJsonReader.readPlays(input));
+        }
+        final BiFunction<Invoice, PlayCatalog, StatementPrinter> printerFactory = printerFactory(format);
+        final Path partial = shardFile(shard, PARTIAL);
+        final long count;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     Files.newInputStream(shardFile(shard, INPUT))))) {
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)));
+            final long records = in.readLong();
+            for (long i = 0; i < records; i++) {
+                final long position = in.readLong();
+                final byte[] statement = printerFactory.apply(readInvoice(in, catalog), catalog).statement()
+                        .getBytes(StandardCharsets.UTF_8);
+                out.writeLong(position);
+                out.writeInt(statement.length);
+                out.write(statement);
+            }
+            out.flush();
+            channel.force(true);
+            count = records;
+        }
+        commit(partial, shardFile(shard, OUTPUT));
+        writeMarker(done, count);
+        return count;
+    }
+
+    private static Invoice readInvoice(DataInputStream in, PlayCatalog catalog) throws IOException {
+        final String customer = in.readUTF();
+        final int count = in.readInt();
+        final List<Performance> performances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String playID = in.readUTF();
+            performances.add(catalog.performance(playID, in.readInt()));
+        }
+        return new Invoice(customer, performances);
+    }
+
+    private static void writeMarker(Path marker, long count) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(COUNT_KEY, String.valueOf(count));
+        final Path partial = marker.resolveSibling(marker.getFileName() + "." + PARTIAL);
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            properties.store(Channels.newOutputStream(channel), null);
+            channel.force(true);
+        }
+        commit(partial, marker);
+    }
+
+    private void runShardProcess(int shard) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (final Map.Entry<String, String> property : forwardedProperties().entrySet()) {
+            command.add("-D" + property.getKey() + "=" + property.getValue());
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CheckpointedBatchRunner.class.getName());
+        command.add("plays=" + playsFile);
+        command.add("invoices=" + invoicesFile);
+        command.add("work=" + workDirectory);
+        command.add("shards=" + shards);
+        command.add("format=" + format);
+        command.add("shard=" + shard);
+        final Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            final int status = process.waitFor();
+            if (status != 0) {
+                throw new IOException(String.format("shard %d process exited with status %d", shard, status));
+            }
+        }
+        catch (InterruptedException exception) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException(String.format("interrupted while running shard %d", shard), exception);
+        }
+        if (!Files.exists(shardFile(shard, DONE))) {
+            throw new IOException(String.format("shard %d process exited without finishing", shard));
+        }
+    }
+
+    /**
+     * Merges the shard files by input position into the output, which is replaced atomically.
+     */
+    private long merge(Path output) throws IOException {
+        final PriorityQueue<ShardReader> queue = new PriorityQueue<>(Comparator.comparingLong(ShardReader::sequence));
+        final List<ShardReader> readers = new ArrayList<>();
+        final Path partial = output.resolveSibling(output.getFileName() + "." + PARTIAL);
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int shard = 0; shard < shards; shard++) {
+                final ShardReader reader = new ShardReader(shardFile(shard, OUTPUT), readCount(shardFile(shard, DONE)));
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            final OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            while (!queue.isEmpty()) {
+                final ShardReader reader = queue.poll();
+                out.write(reader.statement());
+                count++;
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        finally {
+            for (final ShardReader reader : readers) {
+                reader.close();
+            }
+        }
+        commit(partial, output);
+        return count;
+    }
+
+    /**
+     * Returns the {@value #PROPERTY_PREFIX} system properties, such as the pricing file, that change
+     * how statements are rendered. Child processes get the same values.
+     */
+    static Map<String, String> forwardedProperties() {
+        final Map<String, String> result = new TreeMap<>();
+        for (final String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PROPERTY_PREFIX)) {
+                result.put(name, System.getProperty(name));
+            }
+        }
+        return result;
+    }
+
+    private Path shardFile(int shard, String suffix) {
+        return workDirectory.resolve(String.format(SHARD_FILE, shard, suffix));
+    }
+
+    /**
+     * Returns the shard of an invoice. String hash codes are specified, so every JVM agrees.
+     *
+     * @param customer the customer of the invoice
+     * @param shards the number of shards
+     * @return the shard, from 0 to shards - 1
+     */
+    static int shardOf(String customer, int shards) {
+        return Math.floorMod(customer.hashCode(), shards);
+    }
+
+    private static long readCount(Path marker) throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(marker)) {
+            properties.load(input);
+        }
+        final String count = properties.getProperty(COUNT_KEY);
+        if (count == null) {
+            throw new IOException(String.format("corrupt done marker: %s", marker));
+        }
+        return Long.parseLong(count);
+    }
+
+    /**
+     * Renames a fully written file into place and forces the directory entry to disk.
+     */
+    private static void commit(Path partial, Path target) throws IOException {
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel directory = FileChannel.open(target.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+        catch (IOException exception) {
+            // some platforms cannot open or force directories; the rename itself is still atomic
+        }
+    }
+
+    private static BiFunction<Invoice, PlayCatalog, StatementPrinter> printerFactory(String format) {
+        if (HTML.equals(format)) {
+            return HTMLStatementPrinter::new;
+        }
+        return StatementPrinter::new;
+    }
+
+    /**
+     * Runs a batch, or one shard of it, from the command line.
+     *
+     * @param args {@code key=value} options, see the class comment
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        final Map<String, String> options = new HashMap<>();
+        for (final String arg : args) {
+            final int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException(String.format("expected key=value: %s", arg));
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        for (final String required : new String[] {"plays", "invoices", "work"}) {
+            if (!options.containsKey(required)) {
+                throw new IllegalArgumentException(String.format("missing option: %s", required));
+            }
+        }
+        final Builder builder = builder(Paths.get(options.get("plays")), Paths.get(options.get("invoices")),
+                Paths.get(options.get("work")))
+                .shards(Integer.parseInt(options.getOrDefault("shards", String.valueOf(DEFAULT_SHARDS))))
+                .format(options.getOrDefault("format", TEXT))
+                .processes(Boolean.parseBoolean(options.getOrDefault("processes", "false")));
+        if (options.containsKey("parallelism")) {
+            builder.parallelism(Integer.parseInt(options.get("parallelism")));
+        }
+        final CheckpointedBatchRunner runner = builder.build();
+        if (options.containsKey("shard")) {
+            runner.runShard(Integer.parseInt(options.get("shard")));
+            return;
+        }
+        if (!options.containsKey("output")) {
+            throw new IllegalArgumentException("missing option: output");
+        }
+        System.out.println(runner.run(Paths.get(options.get("output"))));
+    }
+
+    /**
+     * Writes the invoices of one shard to its partial input file. The record count is written first
+     * and patched when the shard is finished.
+     */
+    private static final class ShardInputWriter implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private long count;
+
+        ShardInputWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            try {
+                out.writeLong(0);
+            }
+            catch (IOException exception) {
+                channel.close();
+                throw exception;
+            }
+        }
+
+        void write(long position, Invoice invoice) {
+            try {
+                out.writeLong(position);
+                out.writeUTF(invoice.getCustomer());
+                out.writeInt(invoice.getPerformances().size());
+                for (final Performance performance : invoice.getPerformances()) {
+                    out.writeUTF(performance.getPlayID());
+                    out.writeInt(performance.getAudience());
+                }
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            count++;
+        }
+
+        void finish() throws IOException {
+            out.flush();
+            final ByteBuffer header = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads one shard file record by record during the merge.
+     */
+    private static final class ShardReader implements AutoCloseable {
+
+        private final DataInputStream in;
+        private long remaining;
+        private long sequence;
+        private byte[] statement;
+
+        ShardReader(Path file, long count) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            this.remaining = count;
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            sequence = in.readLong();
+            statement = new byte[in.readInt()];
+            in.readFully(statement);
+            return true;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+
+        byte[] statement() {
+            return statement;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Builds a {@link CheckpointedBatchRunner}.
+     */
+    public static final class Builder {
+
+        private final Path playsFile;
+        private final Path invoicesFile;
+        private final Path workDirectory;
+        private int shards = DEFAULT_SHARDS;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private String format = TEXT;
+        private boolean processes;
+
+        private Builder(Path playsFile, Path invoicesFile, Path workDirectory) {
+            this.playsFile = playsFile;
+            this.invoicesFile = invoicesFile;
+            this.workDirectory = workDirectory;
+        }
+
+        /**
+         * Sets the number of shards. It cannot change while a work directory is in use.
+         *
+         * @param value the number of shards
+         * @return this builder
+         * @throws IllegalArgumentException if value is not positive
+         */
+        public Builder shards(int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException(String.format("shards must be positive: %d", value));
+            }
+            this.shards = value;
+            return this;
+        }
+
+        /**
+         * Sets how many shards are rendered at once.
+         *
+         * @param value the number of threads or processes
+         * @return this builder
+         * @throws IllegalArgumentException if value is not positive
+         */
+        public Builder parallelism(int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException(String.format("parallelism must be positive: %d", value));
+            }
+            this.parallelism = value;
+            return this;
+        }
+
+        /**
+         * Sets the statement format.
+         *
+         * @param value {@code text} or {@code html}
+         * @return this builder
+         * @throws IllegalArgumentException if the format is not known
+         */
+        public Builder format(String value) {
+            if (!TEXT.equals(value) && !HTML.equals(value)) {
+                throw new IllegalArgumentException(String.format("unknown format: %s", value));
+            }
+            this.format = value;
+            return this;
+        }
+
+        /**
+         * Sets whether each shard is rendered in its own JVM, started with this JVM's class path.
+         *
+         * @param value true to start a process per shard
+         * @return this builder
+         */
+        public Builder processes(boolean value) {
+            this.processes = value;
+            return this;
+        }
+
+        public CheckpointedBatchRunner build() {
+            return new CheckpointedBatchRunner(this);
+        }
+    }
+
+    /**
+     * What one run did.
+     */
+    public static final class Result {
+
+        private final int renderedShards;
+        private final int skippedShards;
+        private final long statementCount;
+
+        Result(int renderedShards, int skippedShards, long statementCount) {
+            this.renderedShards = renderedShards;
+            this.skippedShards = skippedShards;
+            this.statementCount = statementCount;
+        }
+
+        public int getRenderedShards() {
+            return renderedShards;
+        }
+
+        public int getSkippedShards() {
+            return skippedShards;
+        }
+
+        public long getStatementCount() {
+            return statementCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d statements; %d shards rendered, %d already done",
+                    statementCount, renderedShards, skippedShards);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package theater;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Struct-of-arrays variant of {@link StatementData} for invoices with many performances.
+ * Audience, amount and credits are kept in primitive columns, each line refers to its play by
+ * index into a small table of the distinct plays on the invoice, and the totals are computed
+ * once during construction.
+ */
+public final class ColumnarStatementData implements StatementModel {
+
+    private final String customer;
+    private final Play[] plays;
+    private final int[] playIndexes;
+    private final int[] audiences;
+    private final int[] amounts;
+    private final int[] credits;
+    private final int totalAmount;
+    private final int volumeCredits;
+
+    /**
+     * Computes the columns for the given invoice using the default pricing registry.
+     *
+     * @param invoice the invoice information
+     * @param plays a map of play IDs to Play objects
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public ColumnarStatementData(Invoice invoice, Map<String, Play> plays) {
+        this(invoice, plays, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Computes the columns for the given invoice.
+     *
+     * @param invoice the invoice information
+     * @param plays a map of play IDs to Play objects
+     * @param pricingRegistry the pricing strategies by play type
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public ColumnarStatementData(Invoice invoice, Map<String, Play> plays, PricingRegistry pricingRegistry) {
+        final int size = invoice.getPerformances().size();
+        final Map<Play, Integer> distinct = new IdentityHashMap<>();
+        final Play[] playTable = new Play[size];
+        final PricingStrategy[] pricingTable = new PricingStrategy[size];
+        this.customer = invoice.getCustomer();
+        this.playIndexes = new int[size];
+        this.audiences = new int[size];
+        this.amounts = new int[size];
+        this.credits = new int[size];
+
+        int total = 0;
+        int totalCredits = 0;
+        int line = 0;
+        final MetricsRecorder recorder = Metrics.recorder();
+        for (final Performance p : invoice.getPerformances()) {
+            final Play play = plays.get(p.getPlayID());
+            Integer index = distinct.get(play);
+            if (index == null) {
+                index = distinct.size();
+                distinct.put(play, index);
+                playTable[index] = play;
+                pricingTable[index] = pricingRegistry.forPlay(play);
+            }
+            final PricingStrategy pricing = pricingTable[index];
+            playIndexes[line] = index;
+            audiences[line] = p.getAudience();
+            amounts[line] = pricing.amountFor(p.getAudience());
+            credits[line] = pricing.volumeCredits(p.getAudience());
+            recorder.performancePriced(play.getType());
+            total += amounts[line];
+            totalCredits += credits[line];
+            line++;
+        }
+        this.plays = Arrays.copyOf(playTable, distinct.size());
+        this.totalAmount = total;
+        this.volumeCredits = totalCredits;
+    }
+
+    /**
+     * Computes the columns for the given invoice, referring to plays by their catalog index.
+     * The play table is shared with the catalog rather than copied per invoice.
+     *
+     * @param invoice the invoice information
+     * @param catalog the play catalog
+     * @param pricingRegistry the pricing strategies by play type
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public ColumnarStatementData(Invoice invoice, PlayCatalog catalog, PricingRegistry pricingRegistry) {
+        final int size = invoice.getPerformances().size();
+        final PricingStrategy[] pricingTable = new PricingStrategy[catalog.size()];
+        this.customer = invoice.getCustomer();
+        this.plays = catalog.plays();
+        this.playIndexes = new int[size];
+        this.audiences = new int[size];
+        this.amounts = new int[size];
+        this.credits = new int[size];
+
+        int total = 0;
+        int totalCredits = 0;
+        int line = 0;
+        final MetricsRecorder recorder = Metrics.recorder();
+        for (final Performance p : invoice.getPerformances()) {
+            final int index = catalog.indexOf(p);
+            if (index < 0) {
+                throw new UnknownPlayException(p.getPlayID());
+            }
+            if (pricingTable[index] == null) {
+                pricingTable[index] = pricingRegistry.forPlay(plays[index]);
+            }
+            final PricingStrategy pricing = pricingTable[index];
+            playIndexes[line] = index;
+            audiences[line] = p.getAudience();
+            amounts[line] = pricing.amountFor(p.getAudience());
+            credits[line] = pricing.volumeCredits(p.getAudience());
+            recorder.performancePriced(plays[index].getType());
+            total += amounts[line];
+            totalCredits += credits[line];
+            line++;
+        }
+        this.totalAmount = total;
+        this.volumeCredits = totalCredits;
+    }
+
+    @Override
+    public String getCustomer() {
+        return customer;
+    }
+
+    @Override
+    public int size() {
+        return audiences.length;
+    }
+
+    /**
+     * Returns the play of a performance line.
+     *
+     * @param index the line, from 0 to size() - 1
+     * @return the play
+     */
+    public Play getPlay(int index) {
+        return plays[playIndexes[index]];
+    }
+
+    @Override
+    public String getName(int index) {
+        return getPlay(index).getName();
+    }
+
+    @Override
+    public String getType(int index) {
+        return getPlay(index).getType();
+    }
+
+    @Override
+    public int getAudience(int index) {
+        return audiences[index];
+    }
+
+    @Override
+    public int getAmount(int index) {
+        return amounts[index];
+    }
+
+    @Override
+    public int getVolumeCredits(int index) {
+        return credits[index];
+    }
+
+    @Override
+    public int totalAmount() {
+        return totalAmount;
+    }
+
+    @Override
+    public int volumeCredits() {
+        return volumeCredits;
+    }
+}
@@ -0,0 +1,80 @@
+package theater;
+
+import java.io.IOException;
+
+/**
+ * Renders a statement as CSV: a header row, then one row per performance with the columns
+ * {@value #HEADER}. Amounts are in dollars with cents, so the rows add up to the statement totals.
+ */
+public final class CsvStatementRenderer implements StatementRenderer {
+
+    static final String HEADER = "customer,play,type,audience,amount,volumeCredits";
+
+    private static final int CENTS_PER_DOLLAR = 100;
+    private static final int TWO_DIGITS = 10;
+
+    @Override
+    public void renderHeader(StatementModel statementData, Appendable out) throws IOException {
+        out.append(HEADER).append(System.lineSeparator());
+    }
+
+    @Override
+    public void renderLine(StatementModel statementData, int index, Appendable out) throws IOException {
+        appendField(out, statementData.getCustomer());
+        out.append(',');
+        appendField(out, statementData.getName(index));
+        out.append(',');
+        appendField(out, statementData.getType(index));
+        out.append(',');
+        UsdFormatter.appendInteger(out, statementData.getAudience(index));
+        out.append(',');
+        appendDollars(out, statementData.getAmount(index));
+        out.append(',');
+        UsdFormatter.appendInteger(out, statementData.getVolumeCredits(index));
+        out.append(System.lineSeparator());
+    }
+
+    @Override
+    public void renderFooter(StatementModel statementData, Appendable out) {
+        // totals are the sums of the rows
+    }
+
+    private static void appendDollars(Appendable out, int cents) throws IOException {
+        final long value = cents;
+        if (value < 0) {
+            out.append('-');
+        }
+        final long abs = Math.abs(value);
+        UsdFormatter.appendInteger(out, abs / CENTS_PER_DOLLAR);
+        out.append('.');
+        final long rest = abs % CENTS_PER_DOLLAR;
+        if (rest < TWO_DIGITS) {
+            out.append('0');
+        }
+        UsdFormatter.appendInteger(out, rest);
+    }
+
+    /**
+     * Appends a CSV field, quoting it if it contains a comma, quote or line break.
+     *
+     * @param out the destination
+     * @param value the field value
+     * @throws IOException if the output cannot be written
+     */
+    static void appendField(Appendable out, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,77 @@
+package theater;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+/**
+ * Processor that turns each item into zero or more results on the subscriber's delivery thread.
+ * Items are requested one at a time and results are published through a bounded
+ * {@link SubmissionPublisher}, whose {@code submit} blocks while a subscriber's buffer is full,
+ * so a slow subscriber stops this stage from requesting more.
+ *
+ * @param <T> the type of items received
+ * @param <R> the type of results published
+ */
+class FlowStage<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+
+    private final Step<T, R> step;
+    private final Consumer<R> emit = this::submit;
+    private Flow.Subscription subscription;
+
+    FlowStage(Step<T, R> step, Executor executor, int bufferSize) {
+        super(executor, bufferSize);
+        this.step = step;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription value) {
+        if (subscription != null) {
+            value.cancel();
+            return;
+        }
+        subscription = value;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(T item) {
+        try {
+            step.apply(item, emit);
+        }
+        catch (Exception exception) {
+            subscription.cancel();
+            closeExceptionally(exception);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    /**
+     * The work of one stage.
+     *
+     * @param <T> the type of items received
+     * @param <R> the type of results published
+     */
+    interface Step<T, R> {
+
+        /**
+         * Processes one item.
+         * @param item the item
+         * @param emit publishes a result downstream
+         * @throws Exception if the item cannot be processed; the stage then fails
+         */
+        void apply(T item, Consumer<R> emit) throws Exception;
+    }
+}
@@ -0,0 +1,11 @@
+package theater;
+
+/**
+ * Calculator for play types contributed through the {@link PricingRegistry}.
+ */
+public class GenericCalculator extends AbstractPerformanceCalculator {
+
+    public GenericCalculator(Performance performance, Play play, PricingStrategy pricing) {
+        super(performance, play, pricing);
+    }
+}
@@ -0,0 +1,253 @@
+package theater;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mutable statement model for an open invoice. Adding, cancelling or resizing a performance
+ * reprices only that line and adjusts the running totals, so the current statement can be
+ * rendered at any time without recomputing the whole invoice. Instances are not thread-safe.
+ */
+public final class IncrementalStatement implements StatementModel {
+
+    private final String customer;
+    private final Map<String, Play> plays;
+    private final PricingRegistry pricingRegistry;
+    private final List<Line> lines = new ArrayList<>();
+    private int pendingRemovals;
+    private int totalAmount;
+    private int volumeCredits;
+
+    /**
+     * Creates an empty statement for the customer.
+     *
+     * @param customer the customer name
+     * @param plays a map of play IDs to Play objects
+     */
+    public IncrementalStatement(String customer, Map<String, Play> plays) {
+        this(customer, plays, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Creates an empty statement for the customer.
+     *
+     * @param customer the customer name
+     * @param plays a map of play IDs to Play objects
+     * @param pricingRegistry the pricing strategies by play type
+     */
+    public IncrementalStatement(String customer, Map<String, Play> plays, PricingRegistry pricingRegistry) {
+        this.customer = customer;
+        this.plays = plays;
+        this.pricingRegistry = pricingRegistry;
+    }
+
+    /**
+     * Creates a statement holding all performances of the invoice.
+     *
+     * @param invoice the invoice information
+     * @param plays a map of play IDs to Play objects
+     * @return the statement
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public static IncrementalStatement of(Invoice invoice, Map<String, Play> plays) {
+        final IncrementalStatement result = new IncrementalStatement(invoice.getCustomer(), plays);
+        for (final Performance performance : invoice.getPerformances()) {
+            result.add(performance);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a performance to the end of the statement.
+     *
+     * @param performance the performance to add
+     * @return the handle used to change or cancel this line later
+     * @throws UnknownPlayTypeException if the play type is not known
+     */
+    public Line add(Performance performance) {
+        final Play play = plays.get(performance.getPlayID());
+        final Line line = new Line(this, performance.getPlayID(), play, pricingRegistry.forPlay(play));
+        line.price(performance.getAudience());
+        lines.add(line);
+        totalAmount += line.amount;
+        volumeCredits += line.credits;
+        return line;
+    }
+
+    /**
+     * Cancels a performance. The totals are updated immediately.
+     *
+     * @param line the handle returned by {@link #add(Performance)}
+     * @throws IllegalArgumentException if the line belongs to another statement
+     * @throws IllegalStateException if the line was already removed
+     */
+    public void remove(Line line) {
+        checkLive(line);
+        totalAmount -= line.amount;
+        volumeCredits -= line.credits;
+        line.removed = true;
+        pendingRemovals++;
+    }
+
+    /**
+     * Changes the audience of a performance and reprices only that line.
+     *
+     * @param line the handle returned by {@link #add(Performance)}
+     * @param audience the new number of seats
+     * @throws IllegalArgumentException if the line belongs to another statement
+     * @throws IllegalStateException if the line was removed
+     */
+    public void changeAudience(Line line, int audience) {
+        checkLive(line);
+        totalAmount -= line.amount;
+        volumeCredits -= line.credits;
+        line.price(audience);
+        totalAmount += line.amount;
+        volumeCredits += line.credits;
+    }
+
+    /**
+     * Returns the invoice as it currently stands.
+     *
+     * @return a new invoice with the live performances in order
+     */
+    public Invoice toInvoice() {
+        compact();
+        final List<Performance> performances = new ArrayList<>(lines.size());
+        for (final Line line : lines) {
+            performances.add(new Performance(line.playID, line.audience));
+        }
+        return new Invoice(customer, performances);
+    }
+
+    @Override
+    public String getCustomer() {
+        return customer;
+    }
+
+    @Override
+    public int size() {
+        compact();
+        return lines.size();
+    }
+
+    /**
+     * Returns the handle of a performance line.
+     *
+     * @param index the line, from 0 to size() - 1
+     * @return the line
+     */
+    public Line getLine(int index) {
+        compact();
+        return lines.get(index);
+    }
+
+    @Override
+    public String getName(int index) {
+        return getLine(index).play.getName();
+    }
+
+    @Override
+    public String getType(int index) {
+        return getLine(index).play.getType();
+    }
+
+    @Override
+    public int getAudience(int index) {
+        return getLine(index).audience;
+    }
+
+    @Override
+    public int getAmount(int index) {
+        return getLine(index).amount;
+    }
+
+    @Override
+    public int getVolumeCredits(int index) {
+        return getLine(index).credits;
+    }
+
+    @Override
+    public int totalAmount() {
+        return totalAmount;
+    }
+
+    @Override
+    public int volumeCredits() {
+        return volumeCredits;
+    }
+
+    private void checkLive(Line line) {
+        if (line.owner != this) {
+            throw new IllegalArgumentException("line belongs to another statement");
+        }
+        if (line.removed) {
+            throw new IllegalStateException("line was already removed");
+        }
+    }
+
+    /**
+     * Drops cancelled lines. Removal only marks a line, so a run of cancellations costs one pass
+     * over the list the next time lines are read.
+     */
+    private void compact() {
+        if (pendingRemovals > 0) {
+            lines.removeIf(line -> line.removed);
+            pendingRemovals = 0;
+        }
+    }
+
+    /**
+     * Handle for one performance line of an {@link IncrementalStatement}.
+     */
+    public static final class Line {
+
+        private final IncrementalStatement owner;
+        private final String playID;
+        private final Play play;
+        private final PricingStrategy pricing;
+        private int audience;
+        private int amount;
+        private int credits;
+        private boolean removed;
+
+        private Line(IncrementalStatement owner, String playID, Play play, PricingStrategy pricing) {
+            this.owner = owner;
+            this.playID = playID;
+            this.play = play;
+            this.pricing = pricing;
+        }
+
+        private void price(int seats) {
+            this.audience = seats;
+            this.amount = pricing.amountFor(seats);
+            this.credits = pricing.volumeCredits(seats);
+            Metrics.recorder().performancePriced(play.getType());
+        }
+
+        public String getPlayID() {
+            return playID;
+        }
+
+        public Play getPlay() {
+            return play;
+        }
+
+        public int getAudience() {
+            return audience;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+
+        public int getVolumeCredits() {
+            return credits;
+        }
+
+        public boolean isRemoved() {
+            return removed;
+        }
+    }
+}
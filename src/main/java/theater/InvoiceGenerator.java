@@ -0,0 +1,269 @@
+package theater;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Reproducible generator of synthetic invoices over a play catalog. Every invoice is derived only
+ * from the seed and its position, so the same configuration always yields the same invoices,
+ * in any order and from any number of threads.
+ */
+public final class InvoiceGenerator {
+
+    private static final long POSITION_MIX = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private final long invoiceCount;
+    private final String[] customers;
+    private final IntDistribution performancesPerInvoice;
+    private final IntDistribution audience;
+    private final String[][] playsByGenre;
+    private final double[] cumulativeGenreWeights;
+
+    private InvoiceGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.invoiceCount = builder.invoiceCount;
+        this.performancesPerInvoice = builder.performancesPerInvoice;
+        this.audience = builder.audience;
+        this.customers = new String[builder.customerCount];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = String.format("Customer-%06d", i);
+        }
+
+        final Map<String, List<String>> byGenre = new TreeMap<>();
+        for (final Map.Entry<String, Play> entry : new TreeMap<>(builder.plays).entrySet()) {
+            byGenre.computeIfAbsent(entry.getValue().getType(), type -> new ArrayList<>()).add(entry.getKey());
+        }
+        final Map<String, Double> weights = new LinkedHashMap<>();
+        for (final String genre : byGenre.keySet()) {
+            weights.put(genre, builder.genreWeights.getOrDefault(genre, builder.defaultGenreWeight));
+        }
+        this.playsByGenre = new String[weights.size()][];
+        this.cumulativeGenreWeights = new double[weights.size()];
+        double total = 0;
+        int index = 0;
+        for (final Map.Entry<String, Double> entry : weights.entrySet()) {
+            total += entry.getValue();
+            playsByGenre[index] = byGenre.get(entry.getKey()).toArray(new String[0]);
+            cumulativeGenreWeights[index] = total;
+            index++;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("at least one genre in the catalog needs a positive weight");
+        }
+    }
+
+    /**
+     * Starts a generator over the given catalog.
+     *
+     * @param plays a map of play IDs to Play objects
+     * @return a builder
+     */
+    public static Builder builder(Map<String, Play> plays) {
+        return new Builder(plays);
+    }
+
+    public long getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    /**
+     * Generates the invoice at the given position.
+     *
+     * @param position the position, from 0 to getInvoiceCount() - 1
+     * @return the invoice
+     */
+    public Invoice invoice(long position) {
+        final SplittableRandom random = new SplittableRandom(seed ^ (position * POSITION_MIX));
+        final String customer = customers[random.nextInt(customers.length)];
+        final int count = performancesPerInvoice.sample(random);
+        final List<Performance> performances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String[] genrePlays = playsByGenre[pickGenre(random.nextDouble())];
+            performances.add(new Performance(genrePlays[random.nextInt(genrePlays.length)], audience.sample(random)));
+        }
+        return new Invoice(customer, performances);
+    }
+
+    /**
+     * Returns all invoices in position order. The stream may be made parallel.
+     *
+     * @return the invoices
+     */
+    public Stream<Invoice> stream() {
+        return LongStream.range(0, invoiceCount).mapToObj(this::invoice);
+    }
+
+    private int pickGenre(double uniform) {
+        final double target = uniform * cumulativeGenreWeights[cumulativeGenreWeights.length - 1];
+        final int found = Arrays.binarySearch(cumulativeGenreWeights, target);
+        int result = found;
+        if (found < 0) {
+            result = -found - 1;
+        }
+        // skip genres with zero weight, which share their cumulative value with the previous genre
+        while (result < cumulativeGenreWeights.length - 1 && cumulativeGenreWeights[result] <= target) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Distribution of a whole number, such as the audience or the number of performances.
+     */
+    public interface IntDistribution {
+
+        /**
+         * Draws one value.
+         * @param random the source of randomness
+         * @return the value
+         */
+        int sample(SplittableRandom random);
+
+        /**
+         * Returns a distribution that always yields the same value.
+         * @param value the value
+         * @return the distribution
+         */
+        static IntDistribution constant(int value) {
+            return random -> value;
+        }
+
+        /**
+         * Returns a uniform distribution.
+         * @param min the smallest value
+         * @param max the largest value
+         * @return the distribution
+         */
+        static IntDistribution uniform(int min, int max) {
+            return random -> random.nextInt(min, max + 1);
+        }
+
+        /**
+         * Returns a normal distribution clamped to a range.
+         * @param mean the mean
+         * @param standardDeviation the standard deviation
+         * @param min the smallest value
+         * @param max the largest value
+         * @return the distribution
+         */
+        static IntDistribution normal(double mean, double standardDeviation, int min, int max) {
+            return random -> {
+                final double u1 = 1.0 - random.nextDouble();
+                final double u2 = random.nextDouble();
+                final double gaussian = Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+                return (int) Math.max(min, Math.min(max, Math.round(mean + standardDeviation * gaussian)));
+            };
+        }
+
+        /**
+         * Returns a geometric distribution, giving many small values and a long tail, clamped to a range.
+         * @param mean the mean before clamping
+         * @param min the smallest value
+         * @param max the largest value
+         * @return the distribution
+         */
+        static IntDistribution geometric(double mean, int min, int max) {
+            final double logFailure = Math.log(1.0 - 1.0 / Math.max(mean - min + 1, 1.0 + Math.ulp(1.0)));
+            return random -> {
+                final double draw = Math.floor(Math.log(1.0 - random.nextDouble()) / logFailure);
+                return (int) Math.min(max, min + draw);
+            };
+        }
+    }
+
+    /**
+     * Builder for {@link InvoiceGenerator}.
+     */
+    public static final class Builder {
+
+        private static final int DEFAULT_CUSTOMERS = 1000;
+        private static final long DEFAULT_INVOICES = 1000;
+        private static final int DEFAULT_MIN_PERFORMANCES = 1;
+        private static final int DEFAULT_MAX_PERFORMANCES = 10;
+        private static final double DEFAULT_AUDIENCE_MEAN = 40;
+        private static final double DEFAULT_AUDIENCE_DEVIATION = 15;
+        private static final int DEFAULT_MAX_AUDIENCE = 500;
+
+        private final Map<String, Play> plays;
+        private final Map<String, Double> genreWeights = new HashMap<>();
+        private long seed;
+        private long invoiceCount = DEFAULT_INVOICES;
+        private int customerCount = DEFAULT_CUSTOMERS;
+        private double defaultGenreWeight = 1.0;
+        private IntDistribution performancesPerInvoice =
+                IntDistribution.uniform(DEFAULT_MIN_PERFORMANCES, DEFAULT_MAX_PERFORMANCES);
+        private IntDistribution audience =
+                IntDistribution.normal(DEFAULT_AUDIENCE_MEAN, DEFAULT_AUDIENCE_DEVIATION, 0, DEFAULT_MAX_AUDIENCE);
+
+        private Builder(Map<String, Play> plays) {
+            this.plays = plays;
+        }
+
+        public Builder seed(long value) {
+            this.seed = value;
+            return this;
+        }
+
+        public Builder invoices(long value) {
+            this.invoiceCount = value;
+            return this;
+        }
+
+        public Builder customers(int value) {
+            this.customerCount = value;
+            return this;
+        }
+
+        /**
+         * Sets the relative weight of a genre. Genres without a weight get the default weight.
+         * @param genre the play type
+         * @param weight the relative weight; zero excludes the genre
+         * @return this builder
+         */
+        public Builder genreWeight(String genre, double weight) {
+            genreWeights.put(genre, weight);
+            return this;
+        }
+
+        /**
+         * Sets the weight of genres that have no explicit weight, 1.0 unless changed.
+         * @param weight the relative weight; zero excludes those genres
+         * @return this builder
+         */
+        public Builder defaultGenreWeight(double weight) {
+            this.defaultGenreWeight = weight;
+            return this;
+        }
+
+        public Builder performancesPerInvoice(IntDistribution value) {
+            this.performancesPerInvoice = value;
+            return this;
+        }
+
+        public Builder audience(IntDistribution value) {
+            this.audience = value;
+            return this;
+        }
+
+        /**
+         * Creates the generator.
+         * @return the generator
+         * @throws IllegalArgumentException if there are no customers or no genre has a positive weight
+         */
+        public InvoiceGenerator build() {
+            if (customerCount < 1) {
+                throw new IllegalArgumentException(String.format("customers must be positive: %d", customerCount));
+            }
+            return new InvoiceGenerator(this);
+        }
+    }
+}
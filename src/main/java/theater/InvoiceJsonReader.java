@@ -0,0 +1,215 @@
+package theater;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads invoices and plays from the JSON layout used by {@code invoices.json} and {@code plays.json}.
+ * Invoices are parsed incrementally and handed to the caller one at a time, so an invoice
+ * dump of any size is processed in constant memory.
+ */
+public final class InvoiceJsonReader {
+
+    private static final String CUSTOMER = "customer";
+    private static final String PERFORMANCES = "performances";
+    private static final String PLAY_ID = "playID";
+    private static final String AUDIENCE = "audience";
+    private static final String NAME = "name";
+    private static final String TYPE = "type";
+
+    private InvoiceJsonReader() {
+
+    }
+
+    /**
+     * Reads a JSON array of invoices (or a single invoice object) from UTF-8 encoded input.
+     *
+     * @param input the JSON input; it is not closed
+     * @param consumer receives each invoice as soon as it has been parsed
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    public static void readInvoices(InputStream input, Consumer<? super Invoice> consumer) throws IOException {
+        readInvoices(new InputStreamReader(input, StandardCharsets.UTF_8), consumer);
+    }
+
+    /**
+     * Reads a JSON array of invoices (or a single invoice object) from a UTF-8 encoded channel.
+     *
+     * @param channel the JSON input; it is not closed
+     * @param consumer receives each invoice as soon as it has been parsed
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    public static void readInvoices(ReadableByteChannel channel, Consumer<? super Invoice> consumer)
+            throws IOException {
+        readInvoices(Channels.newReader(channel, StandardCharsets.UTF_8), consumer);
+    }
+
+    /**
+     * Reads a JSON array of invoices (or a single invoice object).
+     *
+     * @param reader the JSON input; it is not closed
+     * @param consumer receives each invoice as soon as it has been parsed
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    public static void readInvoices(Reader reader, Consumer<? super Invoice> consumer) throws IOException {
+        readInvoices(reader, null, consumer);
+    }
+
+    /**
+     * Reads a JSON array of invoices (or a single invoice object) from UTF-8 encoded input,
+     * interning play IDs through the catalog so each performance carries its int play index.
+     *
+     * @param input the JSON input; it is not closed
+     * @param catalog the play catalog
+     * @param consumer receives each invoice as soon as it has been parsed
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    public static void readInvoices(InputStream input, PlayCatalog catalog, Consumer<? super Invoice> consumer)
+            throws IOException {
+        readInvoices(new InputStreamReader(input, StandardCharsets.UTF_8), catalog, consumer);
+    }
+
+    /**
+     * Reads a JSON array of invoices (or a single invoice object).
+     *
+     * @param reader the JSON input; it is not closed
+     * @param catalog the play catalog used to intern play IDs, or null to keep them as read
+     * @param consumer receives each invoice as soon as it has been parsed
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    public static void readInvoices(Reader reader, PlayCatalog catalog, Consumer<? super Invoice> consumer)
+            throws IOException {
+        final JsonLexer lexer = new JsonLexer(reader);
+        if (lexer.peek() == '{') {
+            consumer.accept(readInvoice(lexer, catalog));
+        }
+        else {
+            lexer.beginArray();
+            while (lexer.hasNext()) {
+                consumer.accept(readInvoice(lexer, catalog));
+            }
+            lexer.endArray();
+        }
+    }
+
+    /**
+     * Reads invoices and computes the statement data for each one as soon as it has been parsed.
+     *
+     * @param input the UTF-8 encoded JSON input; it is not closed
+     * @param plays a map of play IDs to Play objects
+     * @param consumer receives the statement data of each invoice
+     * @throws IOException if the input cannot be read or is not well formed
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public static void readStatements(InputStream input, Map<String, Play> plays,
+                                      Consumer<? super StatementData> consumer) throws IOException {
+        readInvoices(input, invoice -> consumer.accept(new StatementData(invoice, plays)));
+    }
+
+    /**
+     * Reads a JSON object mapping play IDs to plays from UTF-8 encoded input.
+     *
+     * @param input the JSON input; it is not closed
+     * @return a map of play IDs to Play objects
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    public static Map<String, Play> readPlays(InputStream input) throws IOException {
+        return readPlays(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a JSON object mapping play IDs to plays.
+     *
+     * @param reader the JSON input; it is not closed
+     * @return a map of play IDs to Play objects
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    public static Map<String, Play> readPlays(Reader reader) throws IOException {
+        final JsonLexer lexer = new JsonLexer(reader);
+        final Map<String, Play> result = new HashMap<>();
+        lexer.beginObject();
+        while (lexer.hasNext()) {
+            final String playID = lexer.nextName();
+            String name = null;
+            String type = null;
+            lexer.beginObject();
+            while (lexer.hasNext()) {
+                final String field = lexer.nextName();
+                if (NAME.equals(field)) {
+                    name = lexer.nextString();
+                }
+                else if (TYPE.equals(field)) {
+                    type = lexer.nextString();
+                }
+                else {
+                    lexer.skipValue();
+                }
+            }
+            lexer.endObject();
+            result.put(playID, new Play(name, type));
+        }
+        lexer.endObject();
+        return result;
+    }
+
+    private static Invoice readInvoice(JsonLexer lexer, PlayCatalog catalog) throws IOException {
+        String customer = null;
+        List<Performance> performances = new ArrayList<>();
+        lexer.beginObject();
+        while (lexer.hasNext()) {
+            final String field = lexer.nextName();
+            if (CUSTOMER.equals(field)) {
+                customer = lexer.nextString();
+            }
+            else if (PERFORMANCES.equals(field)) {
+                performances = readPerformances(lexer, catalog);
+            }
+            else {
+                lexer.skipValue();
+            }
+        }
+        lexer.endObject();
+        return new Invoice(customer, performances);
+    }
+
+    private static List<Performance> readPerformances(JsonLexer lexer, PlayCatalog catalog) throws IOException {
+        final List<Performance> result = new ArrayList<>();
+        lexer.beginArray();
+        while (lexer.hasNext()) {
+            String playID = null;
+            int audience = 0;
+            lexer.beginObject();
+            while (lexer.hasNext()) {
+                final String field = lexer.nextName();
+                if (PLAY_ID.equals(field)) {
+                    playID = lexer.nextString();
+                }
+                else if (AUDIENCE.equals(field)) {
+                    audience = lexer.nextInt();
+                }
+                else {
+                    lexer.skipValue();
+                }
+            }
+            lexer.endObject();
+            if (catalog != null) {
+                result.add(catalog.performance(playID, audience));
+            }
+            else {
+                result.add(new Performance(playID, audience));
+            }
+        }
+        lexer.endArray();
+        return result;
+    }
+}
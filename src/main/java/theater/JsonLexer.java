@@ -0,0 +1,294 @@
+package theater;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Minimal pull parser for JSON text. Values are read one token at a time straight from the
+ * underlying reader, so documents of any size can be walked without building a tree.
+ */
+final class JsonLexer {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_DEPTH = 16;
+    private static final int HEX_RADIX = 16;
+    private static final int UNICODE_ESCAPE_LENGTH = 4;
+
+    // scope constants
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder scratch = new StringBuilder();
+    private int position;
+    private int limit;
+    private long consumed;
+    private int[] scopes = new int[INITIAL_DEPTH];
+    private int depth = 1;
+
+    JsonLexer(Reader reader) {
+        this.reader = reader;
+        scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Returns the next non-whitespace character without consuming it.
+     * @return the character, or -1 at the end of the input
+     * @throws IOException if the input cannot be read
+     */
+    int peek() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            final char c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Returns whether the current array or object has another element.
+     * @return true unless the next token closes the current scope
+     * @throws IOException if the input cannot be read
+     */
+    boolean hasNext() throws IOException {
+        final int c = peek();
+        return c != ']' && c != '}' && c != -1;
+    }
+
+    void beginArray() throws IOException {
+        beforeValue();
+        expect('[');
+        push(EMPTY_ARRAY);
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+        depth--;
+    }
+
+    void beginObject() throws IOException {
+        beforeValue();
+        expect('{');
+        push(EMPTY_OBJECT);
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+        depth--;
+    }
+
+    /**
+     * Reads the name of the next member of the current object.
+     * @return the member name
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    String nextName() throws IOException {
+        final int scope = scopes[depth - 1];
+        if (scope == NONEMPTY_OBJECT) {
+            expect(',');
+        }
+        else if (scope != EMPTY_OBJECT) {
+            throw syntaxError("name outside of an object");
+        }
+        final String result = readString();
+        scopes[depth - 1] = DANGLING_NAME;
+        return result;
+    }
+
+    String nextString() throws IOException {
+        beforeValue();
+        return readString();
+    }
+
+    /**
+     * Reads a number that must be a whole value fitting into an int.
+     * @return the number
+     * @throws IOException if the input cannot be read or the value is not an int
+     */
+    int nextInt() throws IOException {
+        beforeValue();
+        final String literal = readLiteral();
+        try {
+            return Integer.parseInt(literal);
+        }
+        catch (NumberFormatException exception) {
+            throw syntaxError(String.format("expected an int but was %s", literal));
+        }
+    }
+
+    /**
+     * Skips the next value, including any nested arrays or objects.
+     * @throws IOException if the input cannot be read or is not well formed
+     */
+    void skipValue() throws IOException {
+        beforeValue();
+        final int c = peek();
+        if (c == '[') {
+            expect('[');
+            push(EMPTY_ARRAY);
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+        }
+        else if (c == '{') {
+            expect('{');
+            push(EMPTY_OBJECT);
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+        }
+        else if (c == '"') {
+            readString();
+        }
+        else {
+            readLiteral();
+        }
+    }
+
+    private void beforeValue() throws IOException {
+        final int scope = scopes[depth - 1];
+        switch (scope) {
+            case EMPTY_DOCUMENT:
+                scopes[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                scopes[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                expect(',');
+                break;
+            case DANGLING_NAME:
+                expect(':');
+                scopes[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw syntaxError("unexpected value");
+        }
+    }
+
+    private void push(int scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = scope;
+    }
+
+    private void expect(char expected) throws IOException {
+        final int c = peek();
+        if (c != expected) {
+            throw syntaxError(String.format("expected '%s'", expected));
+        }
+        position++;
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        scratch.setLength(0);
+        while (true) {
+            final char c = readChar();
+            if (c == '"') {
+                return scratch.toString();
+            }
+            if (c == '\\') {
+                scratch.append(readEscape());
+            }
+            else {
+                scratch.append(c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        final char c = readChar();
+        final char result;
+        switch (c) {
+            case 'b':
+                result = '\b';
+                break;
+            case 'f':
+                result = '\f';
+                break;
+            case 'n':
+                result = '\n';
+                break;
+            case 'r':
+                result = '\r';
+                break;
+            case 't':
+                result = '\t';
+                break;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < UNICODE_ESCAPE_LENGTH; i++) {
+                    final int digit = Character.digit(readChar(), HEX_RADIX);
+                    if (digit < 0) {
+                        throw syntaxError("malformed unicode escape");
+                    }
+                    code = code * HEX_RADIX + digit;
+                }
+                result = (char) code;
+                break;
+            case '"':
+            case '\\':
+            case '/':
+                result = c;
+                break;
+            default:
+                throw syntaxError(String.format("invalid escape '\\%s'", c));
+        }
+        return result;
+    }
+
+    private String readLiteral() throws IOException {
+        peek();
+        scratch.setLength(0);
+        while (position < limit || fill()) {
+            final char c = buffer[position];
+            if (c == ',' || c == ']' || c == '}' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            scratch.append(c);
+            position++;
+        }
+        if (scratch.length() == 0) {
+            throw syntaxError("expected a value");
+        }
+        return scratch.toString();
+    }
+
+    private char readChar() throws IOException {
+        if (position == limit && !fill()) {
+            throw syntaxError("unexpected end of input");
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        position = 0;
+        limit = 0;
+        final int read = reader.read(buffer, 0, buffer.length);
+        if (read > 0) {
+            limit = read;
+        }
+        return read > 0;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(String.format("malformed JSON at offset %d: %s", consumed + position, message));
+    }
+}
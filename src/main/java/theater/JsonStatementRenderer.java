@@ -0,0 +1,84 @@
+package theater;
+
+import java.io.IOException;
+
+/**
+ * Renders a statement as one JSON object:
+ * {@code {"customer": ..., "performances": [{"play": ..., "type": ..., "audience": ..., "amount": ...,
+ * "volumeCredits": ...}], "totalAmount": ..., "volumeCredits": ...}}. Amounts are in cents.
+ */
+public final class JsonStatementRenderer implements StatementRenderer {
+
+    private static final String HEX_DIGITS = "0123456789abcdef";
+    private static final int HEX_SHIFT = 4;
+    private static final int HEX_MASK = 0xF;
+    private static final int FIRST_PRINTABLE = 0x20;
+
+    @Override
+    public void renderHeader(StatementModel statementData, Appendable out) throws IOException {
+        out.append("{\"customer\":");
+        appendString(out, statementData.getCustomer());
+        out.append(",\"performances\":[");
+    }
+
+    @Override
+    public void renderLine(StatementModel statementData, int index, Appendable out) throws IOException {
+        if (index > 0) {
+            out.append(',');
+        }
+        out.append("{\"play\":");
+        appendString(out, statementData.getName(index));
+        out.append(",\"type\":");
+        appendString(out, statementData.getType(index));
+        out.append(",\"audience\":");
+        UsdFormatter.appendInteger(out, statementData.getAudience(index));
+        out.append(",\"amount\":");
+        UsdFormatter.appendInteger(out, statementData.getAmount(index));
+        out.append(",\"volumeCredits\":");
+        UsdFormatter.appendInteger(out, statementData.getVolumeCredits(index));
+        out.append('}');
+    }
+
+    @Override
+    public void renderFooter(StatementModel statementData, Appendable out) throws IOException {
+        out.append("],\"totalAmount\":");
+        UsdFormatter.appendInteger(out, statementData.totalAmount());
+        out.append(",\"volumeCredits\":");
+        UsdFormatter.appendInteger(out, statementData.volumeCredits());
+        out.append('}').append(System.lineSeparator());
+    }
+
+    private static void appendString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < FIRST_PRINTABLE) {
+                        out.append("\\u00")
+                                .append(HEX_DIGITS.charAt(c >> HEX_SHIFT))
+                                .append(HEX_DIGITS.charAt(c & HEX_MASK));
+                    }
+                    else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
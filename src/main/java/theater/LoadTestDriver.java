@@ -0,0 +1,228 @@
+package theater;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/**
+ * Pushes generated invoices through a statement printer on several threads and reports the
+ * throughput and latency percentiles. Only rendering is timed; generating the invoices is not.
+ *
+ * <p>Run it with {@code key=value} arguments, all optional:
+ * {@code plays=<plays.json>} (a small built-in catalog otherwise), {@code invoices}, {@code customers},
+ * {@code seed}, {@code threads}, {@code warmup} (invoices rendered before measuring),
+ * {@code format=text|html}, {@code maxPerformances} and {@code audienceMean}.</p>
+ */
+public final class LoadTestDriver {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MICRO = 1e3;
+    private static final double P50 = 50;
+    private static final double P99 = 99;
+    private static final double P999 = 99.9;
+    private static final int DEFAULT_INVOICES = 100_000;
+    private static final int DEFAULT_WARMUP = 10_000;
+    private static final int DEFAULT_MAX_PERFORMANCES = 10;
+    private static final int DEFAULT_AUDIENCE_MEAN = 40;
+    private static final int MAX_AUDIENCE = 500;
+
+    private LoadTestDriver() {
+    }
+
+    /**
+     * Renders every invoice of the generator once and measures each statement.
+     *
+     * @param generator the source of invoices
+     * @param plays a map of play IDs to Play objects
+     * @param printerFactory creates the printer for one invoice, e.g. {@code HTMLStatementPrinter::new}
+     * @param threads the number of threads rendering at once
+     * @return the measurements
+     * @throws IllegalArgumentException if threads is not positive
+     * @throws RuntimeException if rendering an invoice fails
+     */
+    public static Report run(InvoiceGenerator generator, Map<String, Play> plays,
+                             BiFunction<Invoice, Map<String, Play>, ? extends StatementPrinter> printerFactory,
+                             int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("threads must be positive: %d", threads));
+        }
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final AtomicLong next = new AtomicLong();
+        final AtomicLong characters = new AtomicLong();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            long rendered = 0;
+            long position = next.getAndIncrement();
+            while (position < generator.getInvoiceCount() && failure.get() == null) {
+                final Invoice invoice = generator.invoice(position);
+                try {
+                    final long start = System.nanoTime();
+                    final String statement = printerFactory.apply(invoice, plays).statement();
+                    histogram.record(System.nanoTime() - start);
+                    rendered += statement.length();
+                }
+                catch (RuntimeException exception) {
+                    failure.compareAndSet(null, exception);
+                }
+                position = next.getAndIncrement();
+            }
+            characters.addAndGet(rendered);
+        };
+
+        final List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Thread(worker, "load-test-" + i));
+        }
+        final long start = System.nanoTime();
+        for (final Thread thread : workers) {
+            thread.start();
+        }
+        for (final Thread thread : workers) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for load-test workers", exception);
+            }
+        }
+        final long elapsedNanos = System.nanoTime() - start;
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new Report(histogram, elapsedNanos, characters.get(), threads);
+    }
+
+    /**
+     * Runs a load test from the command line.
+     *
+     * @param args {@code key=value} options, see the class comment
+     * @throws IOException if the plays file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        final Map<String, String> options = new HashMap<>();
+        for (final String arg : args) {
+            final int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException(String.format("expected key=value: %s", arg));
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+
+        final Map<String, Play> plays;
+        if (options.containsKey("plays")) {
+            try (InputStream input = Files.newInputStream(Paths.get(options.get("plays")))) {
+                plays = InvoiceJsonReader.readPlays(input);
+            }
+        }
+        else {
+            plays = sampleCatalog();
+        }
+        final int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        final BiFunction<Invoice, Map<String, Play>, ? extends StatementPrinter> printerFactory;
+        if ("html".equals(options.get("format"))) {
+            printerFactory = HTMLStatementPrinter::new;
+        }
+        else {
+            printerFactory = StatementPrinter::new;
+        }
+        final long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+        final InvoiceGenerator.Builder builder = InvoiceGenerator.builder(plays)
+                .customers(Integer.parseInt(options.getOrDefault("customers", "1000")))
+                .performancesPerInvoice(InvoiceGenerator.IntDistribution.uniform(1,
+                        Integer.parseInt(options.getOrDefault("maxPerformances",
+                                String.valueOf(DEFAULT_MAX_PERFORMANCES)))))
+                .audience(InvoiceGenerator.IntDistribution.geometric(
+                        Double.parseDouble(options.getOrDefault("audienceMean",
+                                String.valueOf(DEFAULT_AUDIENCE_MEAN))), 0, MAX_AUDIENCE));
+
+        final long warmup = Long.parseLong(options.getOrDefault("warmup", String.valueOf(DEFAULT_WARMUP)));
+        if (warmup > 0) {
+            // warm up on different invoices than the measured run
+            run(builder.seed(~seed).invoices(warmup).build(), plays, printerFactory, threads);
+        }
+        final long invoices = Long.parseLong(options.getOrDefault("invoices", String.valueOf(DEFAULT_INVOICES)));
+        System.out.println(run(builder.seed(seed).invoices(invoices).build(), plays, printerFactory, threads));
+    }
+
+    private static Map<String, Play> sampleCatalog() {
+        final Map<String, Play> result = new HashMap<>();
+        result.put("hamlet", new Play("Hamlet", "tragedy"));
+        result.put("othello", new Play("Othello", "tragedy"));
+        result.put("as-like", new Play("As You Like It", "comedy"));
+        result.put("henry-v", new Play("Henry V", "history"));
+        result.put("as-foo", new Play("As Foo", "pastoral"));
+        return result;
+    }
+
+    /**
+     * Measurements of one load-test run.
+     */
+    public static final class Report {
+
+        private final LatencyHistogram latencies;
+        private final long elapsedNanos;
+        private final long characters;
+        private final int threads;
+
+        Report(LatencyHistogram latencies, long elapsedNanos, long characters, int threads) {
+            this.latencies = latencies;
+            this.elapsedNanos = elapsedNanos;
+            this.characters = characters;
+            this.threads = threads;
+        }
+
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        public long getCount() {
+            return latencies.getCount();
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getCharacters() {
+            return characters;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * Returns the rate at which statements were rendered over the whole run.
+         * @return statements per second
+         */
+        public double getThroughput() {
+            double result = 0;
+            if (elapsedNanos > 0) {
+                result = getCount() * NANOS_PER_SECOND / elapsedNanos;
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d statements on %d threads in %.3f s: %.0f statements/s, %d chars%n"
+                            + "latency us: p50=%.1f p99=%.1f p99.9=%.1f max=%.1f mean=%.1f",
+                    getCount(), threads, elapsedNanos / NANOS_PER_SECOND, getThroughput(), characters,
+                    latencies.getPercentile(P50) / NANOS_PER_MICRO,
+                    latencies.getPercentile(P99) / NANOS_PER_MICRO,
+                    latencies.getPercentile(P999) / NANOS_PER_MICRO,
+                    latencies.getMax() / NANOS_PER_MICRO,
+                    latencies.getMean() / NANOS_PER_MICRO);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package theater;
+
+/**
+ * Pricing strategy that precomputes another strategy's amounts and credits for every audience from
+ * zero up to a configurable maximum, so pricing a typical performance is two array reads.
+ * Audiences outside that range are priced by the wrapped strategy directly.
+ */
+public final class MemoizedPricing implements PricingStrategy {
+
+    /**
+     * System property overriding {@link #DEFAULT_MAX_AUDIENCE}; zero or less disables the tables.
+     */
+    public static final String MAX_AUDIENCE_PROPERTY = "theater.pricing.maxMemoizedAudience";
+
+    /**
+     * Largest audience precomputed by default.
+     */
+    public static final int DEFAULT_MAX_AUDIENCE = 2048;
+
+    private final PricingStrategy delegate;
+    private final int[] amounts;
+    private final int[] credits;
+
+    /**
+     * Precomputes the delegate's results for audiences 0 to maxAudience inclusive.
+     *
+     * @param delegate the strategy to memoize; it must be a pure function of the audience
+     * @param maxAudience the largest audience to precompute, or a negative number for none
+     */
+    public MemoizedPricing(PricingStrategy delegate, int maxAudience) {
+        final int size = Math.max(maxAudience + 1, 0);
+        this.delegate = delegate;
+        this.amounts = new int[size];
+        this.credits = new int[size];
+        for (int audience = 0; audience < size; audience++) {
+            amounts[audience] = delegate.amountFor(audience);
+            credits[audience] = delegate.volumeCredits(audience);
+        }
+    }
+
+    /**
+     * Returns the largest audience to precompute, from the {@value #MAX_AUDIENCE_PROPERTY} system property.
+     *
+     * @return the configured maximum, or {@link #DEFAULT_MAX_AUDIENCE} if the property is not set
+     */
+    public static int configuredMaxAudience() {
+        return Integer.getInteger(MAX_AUDIENCE_PROPERTY, DEFAULT_MAX_AUDIENCE);
+    }
+
+    public PricingStrategy getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Returns the largest audience answered from the tables.
+     *
+     * @return the maximum audience, or -1 if nothing is precomputed
+     */
+    public int getMaxAudience() {
+        return amounts.length - 1;
+    }
+
+    @Override
+    public String getType() {
+        return delegate.getType();
+    }
+
+    @Override
+    public int amountFor(int audience) {
+        if (audience >= 0 && audience < amounts.length) {
+            return amounts[audience];
+        }
+        return delegate.amountFor(audience);
+    }
+
+    @Override
+    public int volumeCredits(int audience) {
+        if (audience >= 0 && audience < credits.length) {
+            return credits[audience];
+        }
+        return delegate.volumeCredits(audience);
+    }
+}
@@ -0,0 +1,33 @@
+package theater;
+
+/**
+ * Holds the {@link MetricsRecorder} that statement generation reports to.
+ * It is {@link MetricsRecorder#NOOP} until another recorder is installed.
+ */
+public final class Metrics {
+
+    private static volatile MetricsRecorder recorder = MetricsRecorder.NOOP;
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the installed recorder.
+     * @return the recorder, never null
+     */
+    public static MetricsRecorder recorder() {
+        return recorder;
+    }
+
+    /**
+     * Installs a recorder for all threads.
+     * @param value the recorder, or null to stop recording
+     */
+    public static void setRecorder(MetricsRecorder value) {
+        MetricsRecorder result = value;
+        if (result == null) {
+            result = MetricsRecorder.NOOP;
+        }
+        recorder = result;
+    }
+}
@@ -0,0 +1,134 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes {@link StatementMetrics} outside the process: as a snapshot file that is rewritten
+ * periodically, or as an MXBean on the platform MBean server.
+ */
+public final class MetricsExporter implements AutoCloseable {
+
+    /**
+     * Object name used by {@link #registerMBean(StatementMetrics)}.
+     */
+    public static final String OBJECT_NAME = "theater:type=StatementMetrics";
+
+    private final StatementMetrics metrics;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    private MetricsExporter(StatementMetrics metrics, Path file, long period, TimeUnit unit) {
+        this.metrics = metrics;
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            final Thread thread = new Thread(task, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::exportQuietly, period, period, unit);
+    }
+
+    /**
+     * Starts rewriting a snapshot file at a fixed rate on a daemon thread. Closing the exporter
+     * stops the schedule and writes a final snapshot.
+     *
+     * @param metrics the metrics to export
+     * @param file the snapshot file
+     * @param period the time between snapshots
+     * @param unit the unit of the period
+     * @return the running exporter
+     * @throws IllegalArgumentException if period is not positive
+     */
+    public static MetricsExporter toFile(StatementMetrics metrics, Path file, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException(String.format("period must be positive: %d", period));
+        }
+        return new MetricsExporter(metrics, file, period, unit);
+    }
+
+    /**
+     * Writes one snapshot. The file is replaced atomically, so readers never see a partial snapshot.
+     *
+     * @param metrics the metrics to export
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeSnapshot(StatementMetrics metrics, Path file) throws IOException {
+        final Path absolute = file.toAbsolutePath();
+        final Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                metrics.writeTo(writer);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Registers the metrics on the platform MBean server under {@value #OBJECT_NAME},
+     * replacing any metrics registered there before.
+     *
+     * @param metrics the metrics to register
+     * @return the object name
+     * @throws IllegalStateException if the MBean cannot be registered
+     */
+    public static ObjectName registerMBean(StatementMetrics metrics) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+            return name;
+        }
+        catch (JMException exception) {
+            throw new IllegalStateException("cannot register statement metrics", exception);
+        }
+    }
+
+    private void exportQuietly() {
+        try {
+            writeSnapshot(metrics, file);
+        }
+        catch (IOException exception) {
+            // keep the schedule running; the next snapshot may succeed
+        }
+    }
+
+    /**
+     * Stops the schedule and writes a final snapshot.
+     *
+     * @throws UncheckedIOException if the final snapshot cannot be written
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+            writeSnapshot(metrics, file);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
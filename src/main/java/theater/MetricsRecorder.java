@@ -0,0 +1,71 @@
+package theater;
+
+/**
+ * Receives measurements from statement generation. Implementations are called on the hot path from
+ * many threads at once, so they must be thread-safe and cheap; see {@link StatementMetrics}.
+ * The recorder in use is held by {@link Metrics}.
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Recorder that ignores every measurement. It is the default.
+     */
+    MetricsRecorder NOOP = new MetricsRecorder() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void performancePriced(String type) {
+            // ignored
+        }
+
+        @Override
+        public void statementComputed(long nanos) {
+            // ignored
+        }
+
+        @Override
+        public void statementRendered(long nanos, long characters) {
+            // ignored
+        }
+
+        @Override
+        public void bytesWritten(long bytes) {
+            // ignored
+        }
+    };
+
+    /**
+     * Returns whether measurements are kept. Callers skip reading the clock when this is false.
+     * @return true if this recorder keeps measurements
+     */
+    boolean isEnabled();
+
+    /**
+     * Records that one performance was priced for a statement. Statement models report this as
+     * they build their lines; pricing that builds no statement, such as totals, is not counted.
+     * @param type the play type
+     */
+    void performancePriced(String type);
+
+    /**
+     * Records the time taken to compute the data of one statement.
+     * @param nanos the elapsed time in nanoseconds
+     */
+    void statementComputed(long nanos);
+
+    /**
+     * Records that one statement was rendered.
+     * @param nanos the elapsed rendering time in nanoseconds
+     * @param characters the length of the statement
+     */
+    void statementRendered(long nanos, long characters);
+
+    /**
+     * Records encoded statement bytes written to a channel.
+     * @param bytes the number of bytes
+     */
+    void bytesWritten(long bytes);
+}
@@ -0,0 +1,109 @@
+package theater;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Processor that prices up to {@code parallelism} invoices at once on a worker executor and
+ * publishes the results in arrival order. A new invoice is requested only when the oldest one has
+ * been handed downstream, so at most {@code parallelism} invoices are in flight.
+ *
+ * <p>Results are handed downstream only from worker threads. When the downstream buffer is full
+ * the draining worker waits for room, and the upstream delivery thread is never blocked.</p>
+ */
+final class OrderedPricingStage extends SubmissionPublisher<StatementData>
+        implements Flow.Processor<Invoice, StatementData> {
+
+    private final Function<Invoice, StatementData> pricing;
+    private final Executor workers;
+    private final int parallelism;
+    private final Queue<CompletableFuture<StatementData>> inFlight = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private Flow.Subscription subscription;
+    private volatile boolean upstreamDone;
+    private volatile boolean failed;
+
+    OrderedPricingStage(Function<Invoice, StatementData> pricing, Executor workers, int parallelism,
+                        Executor delivery, int bufferSize) {
+        super(delivery, bufferSize);
+        this.pricing = pricing;
+        this.workers = workers;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription value) {
+        if (subscription != null) {
+            value.cancel();
+            return;
+        }
+        subscription = value;
+        subscription.request(parallelism);
+    }
+
+    @Override
+    public void onNext(Invoice invoice) {
+        final CompletableFuture<StatementData> result = new CompletableFuture<>();
+        inFlight.add(result);
+        workers.execute(() -> {
+            try {
+                result.complete(pricing.apply(invoice));
+            }
+            catch (Throwable exception) {
+                result.completeExceptionally(exception);
+            }
+            drain();
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        failed = true;
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        workers.execute(this::drain);
+    }
+
+    /**
+     * Publishes every finished invoice at the head of the queue; runs on a worker thread. Only one
+     * thread drains at a time; a thread that finds another one draining leaves a request for it and
+     * returns without blocking.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            CompletableFuture<StatementData> head = inFlight.peek();
+            while (!failed && head != null && head.isDone()) {
+                inFlight.poll();
+                try {
+                    submit(head.join());
+                    subscription.request(1);
+                }
+                catch (CompletionException exception) {
+                    failed = true;
+                    subscription.cancel();
+                    closeExceptionally(exception.getCause());
+                }
+                head = inFlight.peek();
+            }
+            if (!failed && upstreamDone && inFlight.isEmpty()) {
+                close();
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
@@ -5,12 +5,30 @@ package theater;
  */
 public class Performance {
 
+    /**
+     * Play index of a performance that has not been resolved against a {@link PlayCatalog}.
+     */
+    public static final int NO_PLAY_INDEX = -1;
+
     private final String playID;
     private final int audience;
+    private final int playIndex;
 
     public Performance(String playID, int audience) {
+        this(playID, audience, NO_PLAY_INDEX);
+    }
+
+    /**
+     * Creates a performance that also carries the dense index of its play in a {@link PlayCatalog}.
+     * Use {@link PlayCatalog#performance(String, int)} rather than calling this directly.
+     * @param playID the play ID
+     * @param audience the number of seats sold
+     * @param playIndex the index of the play in its catalog, or {@link #NO_PLAY_INDEX}
+     */
+    public Performance(String playID, int audience, int playIndex) {
         this.playID = playID;
         this.audience = audience;
+        this.playIndex = playIndex;
     }
 
     public String getPlayID() {
@@ -20,4 +38,8 @@ public class Performance {
     public int getAudience() {
         return audience;
     }
+
+    public int getPlayIndex() {
+        return playIndex;
+    }
 }
@@ -0,0 +1,328 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only table of invoices and performances kept outside the Java heap. Each performance is
+ * an 8-byte row of play index and audience; each invoice is a 16-byte row of customer index, first
+ * performance row and performance count. Rows live in fixed-size segments that are either direct
+ * buffers or, for sets larger than memory, regions of a memory-mapped scratch file. Customers are
+ * kept once each in a string table on the heap.
+ *
+ * <p>Rows are priced straight from the segments with the registry's strategies, without creating
+ * a {@link Performance} per row. Instances are not thread-safe.</p>
+ */
+public final class PerformanceLedger implements Closeable {
+
+    /**
+     * Default number of rows per segment.
+     */
+    public static final int DEFAULT_SEGMENT_ROWS = 1 << 20;
+
+    private static final int PERFORMANCE_BYTES = 8;
+    private static final int AUDIENCE_OFFSET = 4;
+    private static final int INVOICE_BYTES = 16;
+    private static final int FIRST_PERFORMANCE_OFFSET = 4;
+    private static final int PERFORMANCE_COUNT_OFFSET = 12;
+
+    private final PlayCatalog catalog;
+    private final FileChannel channel;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final List<ByteBuffer> performanceSegments = new ArrayList<>();
+    private final List<ByteBuffer> invoiceSegments = new ArrayList<>();
+    private final Map<String, Integer> customerIndexes = new HashMap<>();
+    private final List<String> customers = new ArrayList<>();
+    private long performanceCount;
+    private long invoiceCount;
+    private long fileSize;
+
+    private PerformanceLedger(PlayCatalog catalog, int segmentRows, FileChannel channel) {
+        if (segmentRows < 1 || Integer.bitCount(segmentRows) != 1 || segmentRows > Integer.MAX_VALUE / INVOICE_BYTES) {
+            throw new IllegalArgumentException(String.format("segment rows must be a power of two: %d", segmentRows));
+        }
+        this.catalog = catalog;
+        this.channel = channel;
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentRows);
+        this.segmentMask = segmentRows - 1;
+    }
+
+    /**
+     * Creates a ledger whose segments are direct buffers.
+     *
+     * @param catalog the plays that invoices may refer to
+     * @return the ledger
+     */
+    public static PerformanceLedger allocate(PlayCatalog catalog) {
+        return allocate(catalog, DEFAULT_SEGMENT_ROWS);
+    }
+
+    /**
+     * Creates a ledger whose segments are direct buffers.
+     *
+     * @param catalog the plays that invoices may refer to
+     * @param segmentRows the number of rows per segment, a power of two
+     * @return the ledger
+     * @throws IllegalArgumentException if segmentRows is not a power of two or is too large
+     */
+    public static PerformanceLedger allocate(PlayCatalog catalog, int segmentRows) {
+        return new PerformanceLedger(catalog, segmentRows, null);
+    }
+
+    /**
+     * Creates a ledger whose segments are mapped from a scratch file, so the rows are paged by the
+     * operating system rather than held in memory. The file is created or truncated; its layout is
+     * private to this ledger and it is not deleted on close.
+     *
+     * @param catalog the plays that invoices may refer to
+     * @param file the scratch file
+     * @param segmentRows the number of rows per segment, a power of two
+     * @return the ledger
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if segmentRows is not a power of two or is too large
+     */
+    public static PerformanceLedger map(PlayCatalog catalog, Path file, int segmentRows) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new PerformanceLedger(catalog, segmentRows, channel);
+        }
+        catch (RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    public PlayCatalog getCatalog() {
+        return catalog;
+    }
+
+    public long getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public long getPerformanceCount() {
+        return performanceCount;
+    }
+
+    /**
+     * Appends an invoice and its performances.
+     *
+     * @param invoice the invoice
+     * @return the row number of the invoice
+     * @throws IOException if a mapped segment cannot be added
+     * @throws UnknownPlayException if a performance refers to a play not in the catalog
+     */
+    public long append(Invoice invoice) throws IOException {
+        final List<Performance> performances = invoice.getPerformances();
+        for (final Performance p : performances) {
+            if (catalog.indexOf(p) < 0) {
+                throw new UnknownPlayException(p.getPlayID());
+            }
+        }
+        final long first = performanceCount;
+        // add every segment this invoice needs before writing, so a failed mapping leaves no orphan rows
+        reserve(performanceSegments, first + performances.size(), PERFORMANCE_BYTES);
+        reserve(invoiceSegments, invoiceCount + 1, INVOICE_BYTES);
+        for (final Performance p : performances) {
+            final ByteBuffer segment = segmentFor(performanceSegments, performanceCount, PERFORMANCE_BYTES);
+            final int offset = offsetOf(performanceCount, PERFORMANCE_BYTES);
+            segment.putInt(offset, catalog.indexOf(p));
+            segment.putInt(offset + AUDIENCE_OFFSET, p.getAudience());
+            performanceCount++;
+        }
+        Integer customer = customerIndexes.get(invoice.getCustomer());
+        if (customer == null) {
+            customer = customers.size();
+            customers.add(invoice.getCustomer());
+            customerIndexes.put(invoice.getCustomer(), customer);
+        }
+        final ByteBuffer segment = segmentFor(invoiceSegments, invoiceCount, INVOICE_BYTES);
+        final int offset = offsetOf(invoiceCount, INVOICE_BYTES);
+        segment.putInt(offset, customer);
+        segment.putLong(offset + FIRST_PERFORMANCE_OFFSET, first);
+        segment.putInt(offset + PERFORMANCE_COUNT_OFFSET, performances.size());
+        return invoiceCount++;
+    }
+
+    /**
+     * Returns the customer of an invoice.
+     *
+     * @param invoice the row number of the invoice
+     * @return the customer name
+     * @throws IndexOutOfBoundsException if there is no such invoice
+     */
+    public String getCustomer(long invoice) {
+        return customers.get(invoiceRow(invoice).getInt(offsetOf(invoice, INVOICE_BYTES)));
+    }
+
+    /**
+     * Reads an invoice back as objects, e.g. to print its statement. Its performances carry their
+     * catalog index.
+     *
+     * @param invoice the row number of the invoice
+     * @return the invoice
+     * @throws IndexOutOfBoundsException if there is no such invoice
+     */
+    public Invoice getInvoice(long invoice) {
+        final ByteBuffer segment = invoiceRow(invoice);
+        final int offset = offsetOf(invoice, INVOICE_BYTES);
+        final long first = segment.getLong(offset + FIRST_PERFORMANCE_OFFSET);
+        final int count = segment.getInt(offset + PERFORMANCE_COUNT_OFFSET);
+        final List<Performance> performances = new ArrayList<>(count);
+        for (long row = first; row < first + count; row++) {
+            final ByteBuffer performance = performanceSegments.get((int) (row >>> segmentShift));
+            final int rowOffset = offsetOf(row, PERFORMANCE_BYTES);
+            final int playIndex = performance.getInt(rowOffset);
+            final int audience = performance.getInt(rowOffset + AUDIENCE_OFFSET);
+            performances.add(new Performance(catalog.getPlayID(playIndex), audience, playIndex));
+        }
+        return new Invoice(customers.get(segment.getInt(offset)), performances);
+    }
+
+    /**
+     * Visits every performance row in the order they were appended.
+     *
+     * @param visitor receives each row
+     */
+    public void forEachPerformance(PerformanceVisitor visitor) {
+        for (long invoice = 0; invoice < invoiceCount; invoice++) {
+            final ByteBuffer segment = invoiceRow(invoice);
+            final int offset = offsetOf(invoice, INVOICE_BYTES);
+            final long first = segment.getLong(offset + FIRST_PERFORMANCE_OFFSET);
+            final long end = first + segment.getInt(offset + PERFORMANCE_COUNT_OFFSET);
+            for (long row = first; row < end; row++) {
+                final ByteBuffer performance = performanceSegments.get((int) (row >>> segmentShift));
+                final int rowOffset = offsetOf(row, PERFORMANCE_BYTES);
+                visitor.visit(invoice, performance.getInt(rowOffset), performance.getInt(rowOffset + AUDIENCE_OFFSET));
+            }
+        }
+    }
+
+    /**
+     * Prices every invoice with the default pricing registry.
+     *
+     * @param visitor receives the totals of each invoice, in order
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public void price(InvoiceTotalsVisitor visitor) {
+        price(PricingRegistry.getDefault(), visitor);
+    }
+
+    /**
+     * Prices every invoice, resolving each play's strategy once. Totals are {@code long}s, so
+     * unlike statement totals they do not overflow.
+     *
+     * @param pricingRegistry the pricing strategies by play type
+     * @param visitor receives the totals of each invoice, in order
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public void price(PricingRegistry pricingRegistry, InvoiceTotalsVisitor visitor) {
+        final PricingStrategy[] pricing = new PricingStrategy[catalog.size()];
+        for (long invoice = 0; invoice < invoiceCount; invoice++) {
+            final ByteBuffer segment = invoiceRow(invoice);
+            final int offset = offsetOf(invoice, INVOICE_BYTES);
+            final long first = segment.getLong(offset + FIRST_PERFORMANCE_OFFSET);
+            final long end = first + segment.getInt(offset + PERFORMANCE_COUNT_OFFSET);
+            long amount = 0;
+            long credits = 0;
+            for (long row = first; row < end; row++) {
+                final ByteBuffer performance = performanceSegments.get((int) (row >>> segmentShift));
+                final int rowOffset = offsetOf(row, PERFORMANCE_BYTES);
+                final int playIndex = performance.getInt(rowOffset);
+                final int audience = performance.getInt(rowOffset + AUDIENCE_OFFSET);
+                if (pricing[playIndex] == null) {
+                    pricing[playIndex] = pricingRegistry.forPlay(catalog.getPlay(playIndex));
+                }
+                amount += pricing[playIndex].amountFor(audience);
+                credits += pricing[playIndex].volumeCredits(audience);
+            }
+            visitor.visit(invoice, customers.get(segment.getInt(offset)), amount, credits);
+        }
+    }
+
+    private ByteBuffer invoiceRow(long invoice) {
+        if (invoice < 0 || invoice >= invoiceCount) {
+            throw new IndexOutOfBoundsException(String.format("no invoice row %d of %d", invoice, invoiceCount));
+        }
+        return invoiceSegments.get((int) (invoice >>> segmentShift));
+    }
+
+    private int offsetOf(long row, int rowBytes) {
+        return (int) (row & segmentMask) * rowBytes;
+    }
+
+    private void reserve(List<ByteBuffer> segments, long rows, int rowBytes) throws IOException {
+        while (((long) segments.size() << segmentShift) < rows) {
+            segmentFor(segments, (long) segments.size() << segmentShift, rowBytes);
+        }
+    }
+
+    private ByteBuffer segmentFor(List<ByteBuffer> segments, long row, int rowBytes) throws IOException {
+        final int index = (int) (row >>> segmentShift);
+        if (index == segments.size()) {
+            final int bytes = (int) (segmentMask + 1) * rowBytes;
+            if (channel == null) {
+                segments.add(ByteBuffer.allocateDirect(bytes));
+            }
+            else {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, fileSize, bytes));
+                fileSize += bytes;
+            }
+        }
+        return segments.get(index);
+    }
+
+    /**
+     * Closes the scratch file of a mapped ledger. Direct segments are freed when the ledger is
+     * garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Receives performance rows.
+     */
+    @FunctionalInterface
+    public interface PerformanceVisitor {
+
+        /**
+         * Receives one performance.
+         *
+         * @param invoice the row number of the invoice it belongs to
+         * @param playIndex the catalog index of the play
+         * @param audience the number of seats
+         */
+        void visit(long invoice, int playIndex, int audience);
+    }
+
+    /**
+     * Receives priced invoices.
+     */
+    @FunctionalInterface
+    public interface InvoiceTotalsVisitor {
+
+        /**
+         * Receives the totals of one invoice.
+         *
+         * @param invoice the row number of the invoice
+         * @param customer the customer name
+         * @param amount the total amount in cents
+         * @param volumeCredits the total volume credits
+         */
+        void visit(long invoice, String customer, long amount, long volumeCredits);
+    }
+}
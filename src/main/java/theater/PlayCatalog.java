@@ -0,0 +1,282 @@
+package theater;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable play catalog that interns play IDs to dense ints. Plays are stored in arrays indexed
+ * by that int, so performances that carry their play index are resolved with an array read instead
+ * of hashing the ID string. {@link #asMap()} keeps the string-keyed view for existing callers.
+ */
+public final class PlayCatalog {
+
+    private static final AtomicLong SERIALS = new AtomicLong();
+
+    private final String[] playIDs;
+    private final Play[] plays;
+    private final Map<String, Integer> indexes;
+    private final Map<String, Play> mapView;
+    private final long serial = SERIALS.incrementAndGet();
+    private volatile ResolvedPricing resolvedPricing;
+
+    private PlayCatalog(String[] playIDs, Play[] plays) {
+        this.playIDs = playIDs;
+        this.plays = plays;
+        this.indexes = new HashMap<>();
+        for (int i = 0; i < playIDs.length; i++) {
+            indexes.put(playIDs[i], i);
+        }
+        this.mapView = new MapView();
+    }
+
+    /**
+     * Creates a catalog from a map of play IDs to plays. Play IDs are numbered in sorted order,
+     * so the same map always produces the same indexes.
+     *
+     * @param plays a map of play IDs to Play objects
+     * @return the catalog
+     */
+    public static PlayCatalog of(Map<String, Play> plays) {
+        final String[] ids = plays.keySet().toArray(new String[0]);
+        Arrays.sort(ids);
+        final Play[] table = new Play[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            table[i] = plays.get(ids[i]);
+        }
+        return new PlayCatalog(ids, table);
+    }
+
+    /**
+     * Returns a number that identifies this catalog instance; no two catalogs created by one JVM
+     * share it. Catalogs are immutable, so results derived from a catalog can be keyed by it.
+     *
+     * @return the serial number
+     */
+    long getSerial() {
+        return serial;
+    }
+
+    /**
+     * Returns the number of plays in the catalog.
+     *
+     * @return number of plays
+     */
+    public int size() {
+        return plays.length;
+    }
+
+    /**
+     * Returns the index of a play ID.
+     *
+     * @param playID the play ID
+     * @return the index, or {@link Performance#NO_PLAY_INDEX} if the catalog has no such play
+     */
+    public int indexOf(String playID) {
+        final Integer result = indexes.get(playID);
+        if (result == null) {
+            return Performance.NO_PLAY_INDEX;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the play of a performance, using the index it carries when that index
+     * was assigned by this catalog.
+     *
+     * @param performance the performance
+     * @return the index, or {@link Performance#NO_PLAY_INDEX} if the catalog has no such play
+     */
+    public int indexOf(Performance performance) {
+        final int index = performance.getPlayIndex();
+        if (index >= 0 && index < playIDs.length && playIDs[index] == performance.getPlayID()) {
+            return index;
+        }
+        return indexOf(performance.getPlayID());
+    }
+
+    public String getPlayID(int index) {
+        return playIDs[index];
+    }
+
+    public Play getPlay(int index) {
+        return plays[index];
+    }
+
+    /**
+     * Returns the play with the given ID.
+     *
+     * @param playID the play ID
+     * @return the play, or null if the catalog has no such play
+     */
+    public Play getPlay(String playID) {
+        final int index = indexOf(playID);
+        if (index < 0) {
+            return null;
+        }
+        return plays[index];
+    }
+
+    /**
+     * Returns the play of a performance.
+     *
+     * @param performance the performance
+     * @return the play
+     * @throws UnknownPlayException if the catalog has no such play
+     */
+    public Play getPlay(Performance performance) {
+        final int index = indexOf(performance);
+        if (index < 0) {
+            throw new UnknownPlayException(performance.getPlayID());
+        }
+        return plays[index];
+    }
+
+    /**
+     * Returns the catalog's own copy of a play ID, so equal IDs read from input share one String.
+     *
+     * @param playID the play ID
+     * @return the canonical ID, or the argument itself if the catalog has no such play
+     */
+    public String intern(String playID) {
+        final int index = indexOf(playID);
+        if (index < 0) {
+            return playID;
+        }
+        return playIDs[index];
+    }
+
+    /**
+     * Creates a performance carrying the canonical play ID and its index in this catalog.
+     *
+     * @param playID the play ID
+     * @param audience the number of seats sold
+     * @return the performance
+     */
+    public Performance performance(String playID, int audience) {
+        final int index = indexOf(playID);
+        if (index < 0) {
+            return new Performance(playID, audience);
+        }
+        return new Performance(playIDs[index], audience, index);
+    }
+
+    /**
+     * Returns the play table itself, indexed by play index. Callers must not modify it.
+     *
+     * @return the shared play array
+     */
+    Play[] plays() {
+        return plays;
+    }
+
+    /**
+     * Returns the pricing strategy of the play at an index. Strategies are resolved on first use
+     * and kept for the registry used most recently, so pricing by index costs an array read
+     * instead of a registry lookup per performance.
+     *
+     * @param index the play index
+     * @param pricingRegistry the pricing strategies by play type
+     * @return the strategy
+     * @throws UnknownPlayTypeException if the play type is unknown
+     */
+    PricingStrategy pricing(int index, PricingRegistry pricingRegistry) {
+        ResolvedPricing resolved = resolvedPricing;
+        if (resolved == null || resolved.registry != pricingRegistry) {
+            resolved = new ResolvedPricing(pricingRegistry, plays.length);
+            resolvedPricing = resolved;
+        }
+        PricingStrategy result = resolved.strategies[index];
+        if (result == null) {
+            // racing threads resolve the same shared strategy, so either write may win
+            result = pricingRegistry.forPlay(plays[index]);
+            resolved.strategies[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a read-only map of play IDs to plays backed by this catalog.
+     *
+     * @return the map view
+     */
+    public Map<String, Play> asMap() {
+        return mapView;
+    }
+
+    /**
+     * Strategies resolved from one registry, indexed by play index.
+     */
+    private static final class ResolvedPricing {
+
+        private final PricingRegistry registry;
+        private final PricingStrategy[] strategies;
+
+        ResolvedPricing(PricingRegistry registry, int size) {
+            this.registry = registry;
+            this.strategies = new PricingStrategy[size];
+        }
+    }
+
+    /**
+     * Read-only map view over the catalog arrays.
+     */
+    private final class MapView extends AbstractMap<String, Play> {
+
+        @Override
+        public Play get(Object key) {
+            if (key instanceof String) {
+                return getPlay((String) key);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexes.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return plays.length;
+        }
+
+        @Override
+        public Set<Entry<String, Play>> entrySet() {
+            return new AbstractSet<Entry<String, Play>>() {
+                @Override
+                public Iterator<Entry<String, Play>> iterator() {
+                    return new Iterator<Entry<String, Play>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < plays.length;
+                        }
+
+                        @Override
+                        public Entry<String, Play> next() {
+                            if (next >= plays.length) {
+                                throw new NoSuchElementException();
+                            }
+                            final Entry<String, Play> result = new SimpleImmutableEntry<>(playIDs[next], plays[next]);
+                            next++;
+                            return result;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return plays.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package theater;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Immutable lookup from play type to the shared {@link PricingStrategy} for that type.
+ * The default registry contains the {@link StandardPricing} types, any further types in the default
+ * {@link PricingTable}, and every strategy found through {@link ServiceLoader}; a discovered strategy
+ * replaces a standard one of the same type. Every default strategy is memoized by audience, see
+ * {@link MemoizedPricing}.
+ */
+public final class PricingRegistry {
+
+    private final Map<String, PricingStrategy> strategies;
+
+    private PricingRegistry(Map<String, PricingStrategy> strategies) {
+        this.strategies = strategies;
+    }
+
+    /**
+     * Returns the registry used when no other registry is given.
+     * @return the standard types plus any strategies discovered on the class path
+     */
+    public static PricingRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Creates a registry containing exactly the given strategies. If two strategies have the
+     * same type, the later one wins.
+     * @param strategies the strategies to register
+     * @return the registry
+     */
+    public static PricingRegistry of(Iterable<? extends PricingStrategy> strategies) {
+        final Map<String, PricingStrategy> result = new HashMap<>();
+        for (final PricingStrategy strategy : strategies) {
+            result.put(strategy.getType(), strategy);
+        }
+        return new PricingRegistry(Collections.unmodifiableMap(result));
+    }
+
+    /**
+     * Returns the strategy for the given play type.
+     * @param type the play type
+     * @return the shared strategy
+     * @throws UnknownPlayTypeException if the play type is unknown
+     */
+    public PricingStrategy forType(String type) {
+        final PricingStrategy result = strategies.get(type);
+        if (result == null) {
+            throw new UnknownPlayTypeException(type);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the strategy for the type of the given play.
+     * @param play the play
+     * @return the shared strategy
+     * @throws UnknownPlayTypeException if the play type is unknown
+     */
+    public PricingStrategy forPlay(Play play) {
+        return forType(play.getType());
+    }
+
+    /**
+     * Returns a registry whose strategies answer audiences from 0 to maxAudience from precomputed tables.
+     * @param maxAudience the largest audience to precompute
+     * @return the memoized registry
+     */
+    public PricingRegistry memoized(int maxAudience) {
+        final Map<String, PricingStrategy> result = new HashMap<>();
+        for (final PricingStrategy strategy : strategies.values()) {
+            result.put(strategy.getType(), new MemoizedPricing(unwrap(strategy), maxAudience));
+        }
+        return new PricingRegistry(Collections.unmodifiableMap(result));
+    }
+
+    private static PricingStrategy unwrap(PricingStrategy strategy) {
+        if (strategy instanceof MemoizedPricing) {
+            return ((MemoizedPricing) strategy).getDelegate();
+        }
+        if (strategy instanceof StandardPricing) {
+            return ((StandardPricing) strategy).getDelegate();
+        }
+        return strategy;
+    }
+
+    /**
+     * Returns whether a strategy is registered for the given play type.
+     * @param type the play type
+     * @return true if the type can be priced
+     */
+    public boolean supports(String type) {
+        return strategies.containsKey(type);
+    }
+
+    /**
+     * Returns all registered strategies keyed by play type.
+     * @return an unmodifiable map of play type to strategy
+     */
+    public Map<String, PricingStrategy> getStrategies() {
+        return strategies;
+    }
+
+    /**
+     * Lazily loads the default registry on first use.
+     */
+    private static final class DefaultHolder {
+
+        private static final PricingRegistry INSTANCE = load();
+
+        private static PricingRegistry load() {
+            final int maxAudience = MemoizedPricing.configuredMaxAudience();
+            final Map<String, PricingStrategy> result = new HashMap<>();
+            // the standard types memoize themselves
+            for (final PricingStrategy strategy : Arrays.asList(StandardPricing.values())) {
+                result.put(strategy.getType(), strategy);
+            }
+            for (final PricingStrategy strategy
+                    : StandardPricing.DefaultTable.INSTANCE.toRegistry().getStrategies().values()) {
+                if (!result.containsKey(strategy.getType())) {
+                    result.put(strategy.getType(), new MemoizedPricing(strategy, maxAudience));
+                }
+            }
+            for (final PricingStrategy strategy : ServiceLoader.load(PricingStrategy.class)) {
+                result.put(strategy.getType(), new MemoizedPricing(strategy, maxAudience));
+            }
+            return new PricingRegistry(Collections.unmodifiableMap(result));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package theater;
+
+/**
+ * Pricing parameters for one play type. The amount of a performance is
+ * {@code baseAmount + amountPerAudience * audience}, plus {@code overThresholdAmount
+ * + overThresholdPerPerson * (audience - audienceThreshold)} when the audience exceeds the threshold.
+ * Volume credits are {@code max(audience - creditThreshold, 0)}, plus
+ * {@code audience / extraCreditFactor} when the factor is not zero.
+ */
+public final class PricingRule {
+
+    private final String type;
+    private final int baseAmount;
+    private final int audienceThreshold;
+    private final int overThresholdPerPerson;
+    private final int overThresholdAmount;
+    private final int amountPerAudience;
+    private final int creditThreshold;
+    private final int extraCreditFactor;
+
+    private PricingRule(Builder builder) {
+        this.type = builder.type;
+        this.baseAmount = builder.baseAmount;
+        this.audienceThreshold = builder.audienceThreshold;
+        this.overThresholdPerPerson = builder.overThresholdPerPerson;
+        this.overThresholdAmount = builder.overThresholdAmount;
+        this.amountPerAudience = builder.amountPerAudience;
+        this.creditThreshold = builder.creditThreshold;
+        this.extraCreditFactor = builder.extraCreditFactor;
+    }
+
+    /**
+     * Starts a rule for the given play type with every parameter set to zero.
+     * @param type the play type
+     * @return a builder
+     */
+    public static Builder builder(String type) {
+        return new Builder(type);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getBaseAmount() {
+        return baseAmount;
+    }
+
+    public int getAudienceThreshold() {
+        return audienceThreshold;
+    }
+
+    public int getOverThresholdPerPerson() {
+        return overThresholdPerPerson;
+    }
+
+    public int getOverThresholdAmount() {
+        return overThresholdAmount;
+    }
+
+    public int getAmountPerAudience() {
+        return amountPerAudience;
+    }
+
+    public int getCreditThreshold() {
+        return creditThreshold;
+    }
+
+    public int getExtraCreditFactor() {
+        return extraCreditFactor;
+    }
+
+    /**
+     * Builder for {@link PricingRule}.
+     */
+    public static final class Builder {
+
+        private final String type;
+        private int baseAmount;
+        private int audienceThreshold;
+        private int overThresholdPerPerson;
+        private int overThresholdAmount;
+        private int amountPerAudience;
+        private int creditThreshold;
+        private int extraCreditFactor;
+
+        private Builder(String type) {
+            this.type = type;
+        }
+
+        public Builder baseAmount(int value) {
+            this.baseAmount = value;
+            return this;
+        }
+
+        public Builder audienceThreshold(int value) {
+            this.audienceThreshold = value;
+            return this;
+        }
+
+        public Builder overThresholdPerPerson(int value) {
+            this.overThresholdPerPerson = value;
+            return this;
+        }
+
+        public Builder overThresholdAmount(int value) {
+            this.overThresholdAmount = value;
+            return this;
+        }
+
+        public Builder amountPerAudience(int value) {
+            this.amountPerAudience = value;
+            return this;
+        }
+
+        public Builder creditThreshold(int value) {
+            this.creditThreshold = value;
+            return this;
+        }
+
+        public Builder extraCreditFactor(int value) {
+            this.extraCreditFactor = value;
+            return this;
+        }
+
+        /**
+         * Builds the rule.
+         * @return the rule
+         * @throws IllegalArgumentException if a parameter is negative
+         */
+        public PricingRule build() {
+            final int[] values = {baseAmount, audienceThreshold, overThresholdPerPerson, overThresholdAmount,
+                amountPerAudience, creditThreshold, extraCreditFactor};
+            for (final int value : values) {
+                if (value < 0) {
+                    throw new IllegalArgumentException(String.format("pricing parameters of %s must not be negative",
+                            type));
+                }
+            }
+            return new PricingRule(this);
+        }
+    }
+}
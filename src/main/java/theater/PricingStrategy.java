@@ -0,0 +1,32 @@
+package theater;
+
+/**
+ * Stateless pricing rules for one type of play. A single shared instance prices every
+ * performance of that type, so implementations must be thread-safe and must not keep
+ * per-performance state.
+ *
+ * <p>Additional types can be provided without changing this project by listing the
+ * implementation in {@code META-INF/services/theater.PricingStrategy}; see {@link PricingRegistry}.</p>
+ */
+public interface PricingStrategy {
+
+    /**
+     * Returns the play type this strategy prices, as used in {@link Play#getType()}.
+     * @return the play type
+     */
+    String getType();
+
+    /**
+     * Calculate the amount for a performance of this type.
+     * @param audience the number of seats sold
+     * @return amount in cents
+     */
+    int amountFor(int audience);
+
+    /**
+     * Calculate the volume credits for a performance of this type.
+     * @param audience the number of seats sold
+     * @return volume credits
+     */
+    int volumeCredits(int audience);
+}
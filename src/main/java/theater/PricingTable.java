@@ -0,0 +1,349 @@
+package theater;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Pricing rules compiled into one flat int array, {@value #STRIDE} slots per play type.
+ * Computing an amount or credits is a handful of array reads and arithmetic with no branches on the
+ * play type, so the same kernel prices every genre.
+ *
+ * <p>Rules are loaded from a properties file with one {@code <type>.<parameter>=<value>} entry per
+ * parameter of {@link PricingRule}, for example {@code tragedy.baseAmount=40000}. Missing parameters
+ * are zero, and values may not be negative. The default table is the bundled
+ * {@code theater/pricing.properties}, with each parameter set in the file named by the
+ * {@value #PRICING_FILE_PROPERTY} system property, if it is set, replacing the bundled value. Parameters
+ * and types the file leaves out keep their bundled values.</p>
+ */
+public final class PricingTable {
+
+    /**
+     * System property naming a pricing file that replaces the bundled defaults.
+     */
+    public static final String PRICING_FILE_PROPERTY = "theater.pricing.file";
+
+    /**
+     * Number of table slots per play type.
+     */
+    public static final int STRIDE = 7;
+
+    private static final String DEFAULT_RESOURCE = "theater/pricing.properties";
+
+    // slot offsets within a play type's stride
+    private static final int BASE_AMOUNT = 0;
+    private static final int AUDIENCE_THRESHOLD = 1;
+    private static final int OVER_THRESHOLD_PER_PERSON = 2;
+    private static final int OVER_THRESHOLD_AMOUNT = 3;
+    private static final int AMOUNT_PER_AUDIENCE = 4;
+    private static final int CREDIT_THRESHOLD = 5;
+    private static final int EXTRA_CREDIT_DIVISOR = 6;
+
+    private static final int SIGN_SHIFT = 31;
+
+    private final String[] types;
+    private final Map<String, Integer> typeIndexes = new HashMap<>();
+    private final int[] table;
+
+    private PricingTable(List<PricingRule> rules) {
+        this.types = new String[rules.size()];
+        this.table = new int[rules.size() * STRIDE];
+        for (int i = 0; i < rules.size(); i++) {
+            final PricingRule rule = rules.get(i);
+            final int offset = i * STRIDE;
+            types[i] = rule.getType();
+            typeIndexes.put(rule.getType(), i);
+            table[offset + BASE_AMOUNT] = rule.getBaseAmount();
+            table[offset + AUDIENCE_THRESHOLD] = rule.getAudienceThreshold();
+            table[offset + OVER_THRESHOLD_PER_PERSON] = rule.getOverThresholdPerPerson();
+            table[offset + OVER_THRESHOLD_AMOUNT] = rule.getOverThresholdAmount();
+            table[offset + AMOUNT_PER_AUDIENCE] = rule.getAmountPerAudience();
+            table[offset + CREDIT_THRESHOLD] = rule.getCreditThreshold();
+            // a factor of zero means no extra credits; dividing by MAX_VALUE gives zero for any audience
+            if (rule.getExtraCreditFactor() == 0) {
+                table[offset + EXTRA_CREDIT_DIVISOR] = Integer.MAX_VALUE;
+            }
+            else {
+                table[offset + EXTRA_CREDIT_DIVISOR] = rule.getExtraCreditFactor();
+            }
+        }
+    }
+
+    /**
+     * Compiles a table from the given rules. If two rules have the same type, the later one wins.
+     *
+     * @param rules the pricing rules
+     * @return the compiled table
+     */
+    public static PricingTable compile(Collection<PricingRule> rules) {
+        final Map<String, PricingRule> byType = new TreeMap<>();
+        for (final PricingRule rule : rules) {
+            byType.put(rule.getType(), rule);
+        }
+        return new PricingTable(new ArrayList<>(byType.values()));
+    }
+
+    /**
+     * Reads and compiles pricing rules in properties format.
+     *
+     * @param input the rules; the stream is not closed
+     * @return the compiled table
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if a key or value is not valid
+     */
+    public static PricingTable load(InputStream input) throws IOException {
+        final Map<String, PricingRule.Builder> builders = new TreeMap<>();
+        readParameters(input, builders);
+        return compile(build(builders));
+    }
+
+    /**
+     * Sets the parameters read from the input on the builder of their type, adding builders for
+     * types not seen before.
+     */
+    private static void readParameters(InputStream input, Map<String, PricingRule.Builder> builders)
+            throws IOException {
+        final Properties properties = new Properties();
+        properties.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+        for (final String key : properties.stringPropertyNames()) {
+            final int dot = key.lastIndexOf('.');
+            if (dot <= 0) {
+                throw new IllegalArgumentException(String.format("pricing key must be <type>.<parameter>: %s", key));
+            }
+            final PricingRule.Builder builder = builders.computeIfAbsent(key.substring(0, dot), PricingRule::builder);
+            final int value = parseValue(key, properties.getProperty(key));
+            setParameter(builder, key, key.substring(dot + 1), value);
+        }
+    }
+
+    private static List<PricingRule> build(Map<String, PricingRule.Builder> builders) {
+        final List<PricingRule> rules = new ArrayList<>();
+        for (final PricingRule.Builder builder : builders.values()) {
+            rules.add(builder.build());
+        }
+        return rules;
+    }
+
+    /**
+     * Loads the default pricing rules: the bundled rules, overridden parameter by parameter by the
+     * file named by the {@value #PRICING_FILE_PROPERTY} system property.
+     *
+     * @return the compiled table
+     * @throws UncheckedIOException if the pricing file cannot be read
+     * @throws IllegalArgumentException if the pricing file has an invalid key or value
+     */
+    public static PricingTable loadDefault() {
+        final String file = System.getProperty(PRICING_FILE_PROPERTY);
+        try {
+            final Map<String, PricingRule.Builder> builders = new TreeMap<>();
+            try (InputStream input = PricingTable.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (input == null) {
+                    throw new IOException(String.format("missing pricing resource: %s", DEFAULT_RESOURCE));
+                }
+                readParameters(input, builders);
+            }
+            if (file != null) {
+                try (InputStream input = Files.newInputStream(Paths.get(file))) {
+                    readParameters(input, builders);
+                }
+                catch (IllegalArgumentException exception) {
+                    throw new IllegalArgumentException(String.format("invalid pricing file %s: %s", file,
+                            exception.getMessage()), exception);
+                }
+            }
+            return compile(build(builders));
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static int parseValue(String key, String value) {
+        final int result;
+        try {
+            result = Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(String.format("pricing value of %s is not an int: %s", key, value));
+        }
+        if (result < 0) {
+            throw new IllegalArgumentException(String.format("pricing value of %s is negative: %s", key, value));
+        }
+        return result;
+    }
+
+    private static void setParameter(PricingRule.Builder builder, String key, String parameter, int value) {
+        switch (parameter) {
+            case "baseAmount":
+                builder.baseAmount(value);
+                break;
+            case "audienceThreshold":
+                builder.audienceThreshold(value);
+                break;
+            case "overThresholdPerPerson":
+                builder.overThresholdPerPerson(value);
+                break;
+            case "overThresholdAmount":
+                builder.overThresholdAmount(value);
+                break;
+            case "amountPerAudience":
+                builder.amountPerAudience(value);
+                break;
+            case "creditThreshold":
+                builder.creditThreshold(value);
+                break;
+            case "extraCreditFactor":
+                // zero means no extra credits
+                builder.extraCreditFactor(value);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("unknown pricing parameter: %s", key));
+        }
+    }
+
+    /**
+     * Returns the play types in this table, in index order.
+     *
+     * @return a copy of the type names
+     */
+    public String[] getTypes() {
+        return Arrays.copyOf(types, types.length);
+    }
+
+    /**
+     * Returns the index of a play type.
+     *
+     * @param type the play type
+     * @return the index
+     * @throws UnknownPlayTypeException if the play type is unknown
+     */
+    public int typeIndex(String type) {
+        final Integer result = typeIndexes.get(type);
+        if (result == null) {
+            throw new UnknownPlayTypeException(type);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the table has a rule for the play type.
+     *
+     * @param type the play type
+     * @return true if the type can be priced
+     */
+    public boolean contains(String type) {
+        return typeIndexes.containsKey(type);
+    }
+
+    /**
+     * Calculate the amount for a performance.
+     *
+     * @param typeIndex the index of the play type
+     * @param audience the number of seats sold
+     * @return amount in cents
+     */
+    public int amountFor(int typeIndex, int audience) {
+        final int offset = typeIndex * STRIDE;
+        final int excess = Math.max(audience - table[offset + AUDIENCE_THRESHOLD], 0);
+        // 1 when the audience is over the threshold, 0 otherwise
+        final int over = -excess >>> SIGN_SHIFT;
+        return table[offset + BASE_AMOUNT]
+                + table[offset + AMOUNT_PER_AUDIENCE] * audience
+                + table[offset + OVER_THRESHOLD_PER_PERSON] * excess
+                + table[offset + OVER_THRESHOLD_AMOUNT] * over;
+    }
+
+    /**
+     * Calculate the volume credits for a performance.
+     *
+     * @param typeIndex the index of the play type
+     * @param audience the number of seats sold
+     * @return volume credits
+     */
+    public int volumeCredits(int typeIndex, int audience) {
+        final int offset = typeIndex * STRIDE;
+        return Math.max(audience - table[offset + CREDIT_THRESHOLD], 0)
+                + audience / table[offset + EXTRA_CREDIT_DIVISOR];
+    }
+
+    /**
+     * Prices a batch of performances in one pass.
+     *
+     * @param typeIndexes the play type index of each performance
+     * @param audiences the audience of each performance
+     * @param amounts receives the amount of each performance
+     * @param credits receives the volume credits of each performance
+     * @param count the number of performances to price
+     */
+    public void price(int[] typeIndexes, int[] audiences, int[] amounts, int[] credits, int count) {
+        for (int i = 0; i < count; i++) {
+            amounts[i] = amountFor(typeIndexes[i], audiences[i]);
+            credits[i] = volumeCredits(typeIndexes[i], audiences[i]);
+        }
+    }
+
+    /**
+     * Returns a shared strategy pricing one play type from this table.
+     *
+     * @param type the play type
+     * @return the strategy
+     * @throws UnknownPlayTypeException if the play type is unknown
+     */
+    public PricingStrategy strategy(String type) {
+        return new TableStrategy(this, typeIndex(type));
+    }
+
+    /**
+     * Returns a registry with one strategy per play type in this table.
+     *
+     * @return the registry
+     */
+    public PricingRegistry toRegistry() {
+        final List<PricingStrategy> strategies = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            strategies.add(new TableStrategy(this, i));
+        }
+        return PricingRegistry.of(strategies);
+    }
+
+    /**
+     * Strategy for one row of a pricing table.
+     */
+    private static final class TableStrategy implements PricingStrategy {
+
+        private final PricingTable pricingTable;
+        private final int typeIndex;
+
+        TableStrategy(PricingTable pricingTable, int typeIndex) {
+            this.pricingTable = pricingTable;
+            this.typeIndex = typeIndex;
+        }
+
+        @Override
+        public String getType() {
+            return pricingTable.types[typeIndex];
+        }
+
+        @Override
+        public int amountFor(int audience) {
+            return pricingTable.amountFor(typeIndex, audience);
+        }
+
+        @Override
+        public int volumeCredits(int audience) {
+            return pricingTable.volumeCredits(typeIndex, audience);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package theater;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Aggregates revenue and volume credits over many invoices by genre, play, customer and audience band.
+ * Totals are kept in {@code long}s, so they do not overflow like the {@code int} totals of a single
+ * statement. {@link #collector()} reduces a stream in parallel: each subtask accumulates into its own
+ * primitive arrays, and the partial results are merged once per split. Performances are priced with
+ * the same shared {@link PricingStrategy} instances that the performance calculators delegate to.
+ */
+public final class RevenueAnalytics {
+
+    /**
+     * Default lower bounds of the audience bands.
+     */
+    private static final int[] DEFAULT_BANDS = {0, 20, 30, 50, 100, 250};
+
+    private final PlayCatalog catalog;
+    private final PricingRegistry pricingRegistry;
+    private final int[] bandLowerBounds;
+
+    /**
+     * Creates an engine with the default pricing and audience bands.
+     *
+     * @param catalog the plays that the invoices refer to
+     */
+    public RevenueAnalytics(PlayCatalog catalog) {
+        this(catalog, PricingRegistry.getDefault(), DEFAULT_BANDS);
+    }
+
+    /**
+     * Creates an engine.
+     *
+     * @param catalog the plays that the invoices refer to
+     * @param pricingRegistry the pricing strategies by play type
+     * @param bandLowerBounds the smallest audience of each band, in increasing order; audiences below
+     *     the first bound are counted in the first band
+     * @throws IllegalArgumentException if there are no bands or the bounds are not increasing
+     */
+    public RevenueAnalytics(PlayCatalog catalog, PricingRegistry pricingRegistry, int[] bandLowerBounds) {
+        if (bandLowerBounds.length == 0) {
+            throw new IllegalArgumentException("at least one audience band is needed");
+        }
+        for (int i = 1; i < bandLowerBounds.length; i++) {
+            if (bandLowerBounds[i] <= bandLowerBounds[i - 1]) {
+                throw new IllegalArgumentException(String.format("audience bands must increase: %s",
+                        Arrays.toString(bandLowerBounds)));
+            }
+        }
+        this.catalog = catalog;
+        this.pricingRegistry = pricingRegistry;
+        this.bandLowerBounds = bandLowerBounds.clone();
+    }
+
+    /**
+     * Returns a collector that aggregates invoices. It may be used with parallel streams.
+     *
+     * @return the collector
+     * @throws RuntimeException from the stream operation if an invoice refers to an unknown play or type
+     */
+    public Collector<Invoice, ?, RevenueReport> collector() {
+        return Collector.of(Accumulator::new, Accumulator::add, Accumulator::merge, Accumulator::finish,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Aggregates a collection of invoices in parallel.
+     *
+     * @param invoices the invoices
+     * @return the aggregated totals
+     * @throws RuntimeException if an invoice refers to an unknown play or type
+     */
+    public RevenueReport analyze(Collection<Invoice> invoices) {
+        return analyze(invoices.parallelStream());
+    }
+
+    /**
+     * Aggregates a stream of invoices, in parallel if the stream is parallel.
+     *
+     * @param invoices the invoices
+     * @return the aggregated totals
+     * @throws RuntimeException if an invoice refers to an unknown play or type
+     */
+    public RevenueReport analyze(Stream<Invoice> invoices) {
+        return invoices.collect(collector());
+    }
+
+    private int bandOf(int audience) {
+        final int found = Arrays.binarySearch(bandLowerBounds, audience);
+        if (found >= 0) {
+            return found;
+        }
+        return Math.max(-found - 2, 0);
+    }
+
+    private String bandLabel(int band) {
+        if (band == bandLowerBounds.length - 1) {
+            return bandLowerBounds[band] + "+";
+        }
+        return bandLowerBounds[band] + "-" + (bandLowerBounds[band + 1] - 1);
+    }
+
+    /**
+     * Partial totals of one subtask. Plays and bands are counted in arrays indexed by play index and
+     * band, customers in a map; each slot holds amount, credits and performance count.
+     */
+    private final class Accumulator {
+
+        private final PricingStrategy[] pricing = new PricingStrategy[catalog.size()];
+        private final long[] plays = new long[catalog.size() * RevenueReport.FIELDS];
+        private final long[] bands = new long[bandLowerBounds.length * RevenueReport.FIELDS];
+        private final Map<String, long[]> customers = new HashMap<>();
+
+        void add(Invoice invoice) {
+            long invoiceAmount = 0;
+            long invoiceCredits = 0;
+            for (final Performance performance : invoice.getPerformances()) {
+                final int index = catalog.indexOf(performance);
+                if (index < 0) {
+                    throw new UnknownPlayException(performance.getPlayID());
+                }
+                if (pricing[index] == null) {
+                    pricing[index] = pricingRegistry.forPlay(catalog.getPlay(index));
+                }
+                final int audience = performance.getAudience();
+                final long amount = pricing[index].amountFor(audience);
+                final long credits = pricing[index].volumeCredits(audience);
+                RevenueReport.add(plays, index, amount, credits, 1);
+                RevenueReport.add(bands, bandOf(audience), amount, credits, 1);
+                invoiceAmount += amount;
+                invoiceCredits += credits;
+            }
+            final long[] customer = customers.computeIfAbsent(invoice.getCustomer(),
+                    key -> new long[RevenueReport.FIELDS]);
+            RevenueReport.add(customer, 0, invoiceAmount, invoiceCredits, invoice.getPerformances().size());
+        }
+
+        Accumulator merge(Accumulator other) {
+            for (int i = 0; i < plays.length; i++) {
+                plays[i] += other.plays[i];
+            }
+            for (int i = 0; i < bands.length; i++) {
+                bands[i] += other.bands[i];
+            }
+            for (final Map.Entry<String, long[]> entry : other.customers.entrySet()) {
+                final long[] mine = customers.putIfAbsent(entry.getKey(), entry.getValue());
+                if (mine != null) {
+                    final long[] theirs = entry.getValue();
+                    RevenueReport.add(mine, 0, theirs[RevenueReport.AMOUNT], theirs[RevenueReport.CREDITS],
+                            theirs[RevenueReport.PERFORMANCES]);
+                }
+            }
+            return this;
+        }
+
+        RevenueReport finish() {
+            final Map<String, RevenueReport.Totals> byPlay = new TreeMap<>();
+            final Map<String, long[]> genres = new HashMap<>();
+            for (int i = 0; i < catalog.size(); i++) {
+                final int offset = i * RevenueReport.FIELDS;
+                if (plays[offset + RevenueReport.PERFORMANCES] == 0) {
+                    continue;
+                }
+                byPlay.put(catalog.getPlayID(i), RevenueReport.totals(plays, i));
+                final long[] genre = genres.computeIfAbsent(catalog.getPlay(i).getType(),
+                        key -> new long[RevenueReport.FIELDS]);
+                RevenueReport.add(genre, 0, plays[offset + RevenueReport.AMOUNT],
+                        plays[offset + RevenueReport.CREDITS], plays[offset + RevenueReport.PERFORMANCES]);
+            }
+            final Map<String, RevenueReport.Totals> byGenre = new TreeMap<>();
+            for (final Map.Entry<String, long[]> entry : genres.entrySet()) {
+                byGenre.put(entry.getKey(), RevenueReport.totals(entry.getValue(), 0));
+            }
+            final Map<String, RevenueReport.Totals> byCustomer = new TreeMap<>();
+            for (final Map.Entry<String, long[]> entry : customers.entrySet()) {
+                byCustomer.put(entry.getKey(), RevenueReport.totals(entry.getValue(), 0));
+            }
+            final Map<String, RevenueReport.Totals> byBand = new LinkedHashMap<>();
+            for (int i = 0; i < bandLowerBounds.length; i++) {
+                byBand.put(bandLabel(i), RevenueReport.totals(bands, i));
+            }
+            return new RevenueReport(byGenre, byPlay, byCustomer, byBand);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package theater;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Revenue and volume credits aggregated by {@link RevenueAnalytics}. Genres, plays and customers are
+ * sorted by name; audience bands are in increasing order. Amounts are in cents.
+ */
+public final class RevenueReport {
+
+    // slots of one entry in the accumulator arrays
+    static final int AMOUNT = 0;
+    static final int CREDITS = 1;
+    static final int PERFORMANCES = 2;
+    static final int FIELDS = 3;
+
+    private static final String CSV_HEADER = "dimension,key,performances,amount,volumeCredits";
+
+    private final Map<String, Totals> byGenre;
+    private final Map<String, Totals> byPlay;
+    private final Map<String, Totals> byCustomer;
+    private final Map<String, Totals> byAudienceBand;
+
+    RevenueReport(Map<String, Totals> byGenre, Map<String, Totals> byPlay, Map<String, Totals> byCustomer,
+                  Map<String, Totals> byAudienceBand) {
+        this.byGenre = Collections.unmodifiableMap(byGenre);
+        this.byPlay = Collections.unmodifiableMap(byPlay);
+        this.byCustomer = Collections.unmodifiableMap(byCustomer);
+        this.byAudienceBand = Collections.unmodifiableMap(byAudienceBand);
+    }
+
+    static void add(long[] slots, int entry, long amount, long credits, long performances) {
+        final int offset = entry * FIELDS;
+        slots[offset + AMOUNT] += amount;
+        slots[offset + CREDITS] += credits;
+        slots[offset + PERFORMANCES] += performances;
+    }
+
+    static Totals totals(long[] slots, int entry) {
+        final int offset = entry * FIELDS;
+        return new Totals(slots[offset + AMOUNT], slots[offset + CREDITS], slots[offset + PERFORMANCES]);
+    }
+
+    public Map<String, Totals> getByGenre() {
+        return byGenre;
+    }
+
+    public Map<String, Totals> getByPlay() {
+        return byPlay;
+    }
+
+    public Map<String, Totals> getByCustomer() {
+        return byCustomer;
+    }
+
+    /**
+     * Returns the totals by audience band, labelled like {@code 20-29} or {@code 250+}.
+     *
+     * @return the totals of every band, including empty ones
+     */
+    public Map<String, Totals> getByAudienceBand() {
+        return byAudienceBand;
+    }
+
+    /**
+     * Returns the totals over all invoices.
+     *
+     * @return the grand totals
+     */
+    public Totals getTotal() {
+        final long[] sum = new long[FIELDS];
+        for (final Totals totals : byGenre.values()) {
+            add(sum, 0, totals.getAmount(), totals.getVolumeCredits(), totals.getPerformances());
+        }
+        return totals(sum, 0);
+    }
+
+    /**
+     * Writes every total as CSV with the columns {@value #CSV_HEADER}, one row per genre, play,
+     * customer and audience band.
+     *
+     * @param out the destination
+     * @throws IOException if the output cannot be written
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append(CSV_HEADER).append(System.lineSeparator());
+        writeCsv(out, "genre", byGenre);
+        writeCsv(out, "play", byPlay);
+        writeCsv(out, "customer", byCustomer);
+        writeCsv(out, "audience", byAudienceBand);
+    }
+
+    private static void writeCsv(Appendable out, String dimension, Map<String, Totals> totals) throws IOException {
+        for (final Map.Entry<String, Totals> entry : totals.entrySet()) {
+            out.append(dimension).append(',');
+            CsvStatementRenderer.appendField(out, entry.getKey());
+            out.append(',');
+            UsdFormatter.appendInteger(out, entry.getValue().getPerformances());
+            out.append(',');
+            UsdFormatter.appendInteger(out, entry.getValue().getAmount());
+            out.append(',');
+            UsdFormatter.appendInteger(out, entry.getValue().getVolumeCredits());
+            out.append(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Amount, volume credits and number of performances of one group.
+     */
+    public static final class Totals {
+
+        private final long amount;
+        private final long volumeCredits;
+        private final long performances;
+
+        Totals(long amount, long volumeCredits, long performances) {
+            this.amount = amount;
+            this.volumeCredits = volumeCredits;
+            this.performances = performances;
+        }
+
+        /**
+         * Returns the total amount.
+         *
+         * @return amount in cents
+         */
+        public long getAmount() {
+            return amount;
+        }
+
+        public long getVolumeCredits() {
+            return volumeCredits;
+        }
+
+        public long getPerformances() {
+            return performances;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d performances, %d cents, %d credits", performances, amount, volumeCredits);
+        }
+    }
+}
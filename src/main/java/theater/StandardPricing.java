@@ -0,0 +1,59 @@
+package theater;
+
+/**
+ * The play types supported out of the box. Their prices come from the default {@link PricingTable},
+ * so they can be changed through the pricing file without touching this code, and are memoized by
+ * audience up to {@link MemoizedPricing#configuredMaxAudience()}.
+ */
+public enum StandardPricing implements PricingStrategy {
+
+    TRAGEDY(Constants.TYPE_TRAGEDY),
+    COMEDY(Constants.TYPE_COMEDY),
+    HISTORY(Constants.TYPE_HISTORY),
+    PASTORAL(Constants.TYPE_PASTORAL);
+
+    private final String type;
+    private final MemoizedPricing pricing;
+
+    StandardPricing(String type) {
+        this.type = type;
+        this.pricing = new MemoizedPricing(DefaultTable.INSTANCE.strategy(type),
+                MemoizedPricing.configuredMaxAudience());
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public int amountFor(int audience) {
+        return pricing.amountFor(audience);
+    }
+
+    @Override
+    public int volumeCredits(int audience) {
+        return pricing.volumeCredits(audience);
+    }
+
+    /**
+     * Returns the table strategy this type memoizes, so it can be memoized again with another limit.
+     *
+     * @return the unmemoized strategy
+     */
+    PricingStrategy getDelegate() {
+        return pricing.getDelegate();
+    }
+
+    /**
+     * Holds the default pricing table, loaded when the first standard type is used.
+     */
+    static final class DefaultTable {
+
+        static final PricingTable INSTANCE = PricingTable.loadDefault();
+
+        private DefaultTable() {
+
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package theater;
+
+import java.nio.file.Path;
+
+/**
+ * Layout of the statement archive written by {@link StatementArchiveWriter}.
+ *
+ * <pre>
+ * archive  magic:int32  version:int32  compression:int32  chunk * chunkCount
+ * index    magic:int32  version:int32  statementCount:int64
+ *          chunkCount:int32  (offset:int64  storedLength:int32  rawLength:int32) * chunkCount
+ *          customerCount:int32  customer:utf * customerCount
+ *          (customerIndex:int32  chunk:int32  offset:int32  length:int32) * statementCount
+ * </pre>
+ *
+ * A chunk is the UTF-8 bytes of consecutive statements, compressed as a whole. Chunk offsets are
+ * positions in the archive; statement offsets and lengths are positions in the uncompressed chunk.
+ * The index is written, next to the archive, only when the writer is closed.
+ */
+final class StatementArchiveFormat {
+
+    static final int ARCHIVE_MAGIC = 0x53544152;
+    static final int INDEX_MAGIC = 0x53544958;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final String INDEX_SUFFIX = ".idx";
+
+    private StatementArchiveFormat() {
+    }
+
+    static Path indexFile(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + INDEX_SUFFIX);
+    }
+}
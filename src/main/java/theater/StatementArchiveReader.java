@@ -0,0 +1,252 @@
+package theater;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads single statements from an archive written by {@link StatementArchiveWriter}. The index is
+ * loaded when the archive is opened; each statement is then fetched with one positioned read of its
+ * chunk, or of just its own bytes when the archive is not compressed. Reads do not move a shared
+ * file position, so instances are safe for concurrent use.
+ */
+public final class StatementArchiveReader implements Closeable {
+
+    private final FileChannel channel;
+    private final StatementArchiveWriter.Compression compression;
+    private final long[] chunkOffsets;
+    private final int[] storedLengths;
+    private final int[] rawLengths;
+    private final String[] customers;
+    private final int[] entries;
+    private final long statementCount;
+    private final Map<String, long[]> statementsByCustomer = new HashMap<>();
+
+    private StatementArchiveReader(FileChannel channel, DataInputStream index) throws IOException {
+        this.channel = channel;
+        final ByteBuffer header = ByteBuffer.allocate(StatementArchiveFormat.HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != StatementArchiveFormat.ARCHIVE_MAGIC) {
+            throw new IOException("not a statement archive: bad magic number");
+        }
+        checkVersion(header.getInt());
+        final int compressionOrdinal = header.getInt();
+        final StatementArchiveWriter.Compression[] compressions = StatementArchiveWriter.Compression.values();
+        if (compressionOrdinal < 0 || compressionOrdinal >= compressions.length) {
+            throw new IOException(String.format("corrupt statement archive: compression %d", compressionOrdinal));
+        }
+        this.compression = compressions[compressionOrdinal];
+
+        if (index.readInt() != StatementArchiveFormat.INDEX_MAGIC) {
+            throw new IOException("not a statement archive index: bad magic number");
+        }
+        checkVersion(index.readInt());
+        this.statementCount = index.readLong();
+        final int chunkCount = index.readInt();
+        this.chunkOffsets = new long[chunkCount];
+        this.storedLengths = new int[chunkCount];
+        this.rawLengths = new int[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunkOffsets[i] = index.readLong();
+            storedLengths[i] = index.readInt();
+            rawLengths[i] = index.readInt();
+            if (chunkOffsets[i] + storedLengths[i] > channel.size()) {
+                throw new IOException(String.format("corrupt statement archive: chunk %d is past the end", i));
+            }
+        }
+        this.customers = new String[index.readInt()];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = index.readUTF();
+        }
+        this.entries = new int[Math.toIntExact(statementCount * StatementArchiveWriter.Entry.FIELDS)];
+        final int[] perCustomer = new int[customers.length];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = index.readInt();
+        }
+        for (long statement = 0; statement < statementCount; statement++) {
+            perCustomer[customerOf(statement)]++;
+        }
+        final long[][] grouped = new long[customers.length][];
+        for (int i = 0; i < customers.length; i++) {
+            grouped[i] = new long[perCustomer[i]];
+            perCustomer[i] = 0;
+        }
+        for (long statement = 0; statement < statementCount; statement++) {
+            final int customer = customerOf(statement);
+            grouped[customer][perCustomer[customer]++] = statement;
+        }
+        for (int i = 0; i < customers.length; i++) {
+            statementsByCustomer.put(customers[i], grouped[i]);
+        }
+    }
+
+    /**
+     * Opens an archive and loads its index.
+     *
+     * @param file the archive; its index must be next to it
+     * @return the reader
+     * @throws IOException if the files cannot be read, or the writer was not closed
+     */
+    public static StatementArchiveReader open(Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try (DataInputStream index = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(StatementArchiveFormat.indexFile(file))))) {
+            return new StatementArchiveReader(channel, index);
+        }
+        catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private static void checkVersion(int version) throws IOException {
+        if (version != StatementArchiveFormat.VERSION) {
+            throw new IOException(String.format("unsupported statement archive version: %d", version));
+        }
+    }
+
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    public StatementArchiveWriter.Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns the customers with statements in the archive.
+     *
+     * @return the customers, in the order they first appear
+     */
+    public List<String> getCustomers() {
+        return Collections.unmodifiableList(Arrays.asList(customers));
+    }
+
+    /**
+     * Returns the numbers of a customer's statements.
+     *
+     * @param customer the customer
+     * @return the statement numbers in archive order; empty if the customer has none
+     */
+    public long[] getStatements(String customer) {
+        final long[] result = statementsByCustomer.get(customer);
+        if (result == null) {
+            return new long[0];
+        }
+        return result.clone();
+    }
+
+    /**
+     * Returns the customer of a statement.
+     *
+     * @param statement the statement number
+     * @return the customer
+     * @throws IndexOutOfBoundsException if there is no such statement
+     */
+    public String getCustomer(long statement) {
+        return customers[customerOf(checkStatement(statement))];
+    }
+
+    /**
+     * Reads one statement.
+     *
+     * @param statement the statement number, as returned by {@link StatementArchiveWriter#append}
+     * @return the statement
+     * @throws IOException if the archive cannot be read or is corrupt
+     * @throws IndexOutOfBoundsException if there is no such statement
+     */
+    public String read(long statement) throws IOException {
+        final int entry = (int) (checkStatement(statement) * StatementArchiveWriter.Entry.FIELDS);
+        final int chunk = entries[entry + StatementArchiveWriter.Entry.CHUNK];
+        final int offset = entries[entry + StatementArchiveWriter.Entry.OFFSET];
+        final int length = entries[entry + StatementArchiveWriter.Entry.LENGTH];
+        if (offset + length > rawLengths[chunk]) {
+            throw new IOException(String.format("corrupt statement archive: statement %d is past its chunk",
+                    statement));
+        }
+        if (compression == StatementArchiveWriter.Compression.NONE) {
+            final ByteBuffer bytes = ByteBuffer.allocate(length);
+            readFully(bytes, chunkOffsets[chunk] + offset);
+            return new String(bytes.array(), 0, length, StandardCharsets.UTF_8);
+        }
+        final ByteBuffer stored = ByteBuffer.allocate(storedLengths[chunk]);
+        readFully(stored, chunkOffsets[chunk]);
+        final byte[] raw = decompress(stored.array(), rawLengths[chunk]);
+        return new String(raw, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private byte[] decompress(byte[] stored, int rawLength) throws IOException {
+        final byte[] result = new byte[rawLength];
+        if (compression == StatementArchiveWriter.Compression.GZIP) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(stored))) {
+                new DataInputStream(in).readFully(result);
+            }
+            return result;
+        }
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            int inflated = 0;
+            while (inflated < rawLength) {
+                final int count = inflater.inflate(result, inflated, rawLength - inflated);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new EOFException("corrupt statement archive: chunk is shorter than its index entry");
+                }
+                inflated += count;
+            }
+        }
+        catch (DataFormatException exception) {
+            throw new IOException("corrupt statement archive: bad compressed chunk", exception);
+        }
+        finally {
+            inflater.end();
+        }
+        return result;
+    }
+
+    private long checkStatement(long statement) {
+        if (statement < 0 || statement >= statementCount) {
+            throw new IndexOutOfBoundsException(String.format("no statement %d of %d", statement, statementCount));
+        }
+        return statement;
+    }
+
+    private int customerOf(long statement) {
+        return entries[(int) (statement * StatementArchiveWriter.Entry.FIELDS) + StatementArchiveWriter.Entry.CUSTOMER];
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long next = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, next);
+            if (read < 0) {
+                throw new EOFException("unexpected end of statement archive");
+            }
+            next += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,368 @@
+package theater;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends rendered statements to one archive file instead of one file per statement. Statements
+ * are gathered into chunks of about {@link #DEFAULT_CHUNK_SIZE} bytes; full chunks are compressed on
+ * background threads while rendering goes on, and a single appender thread writes them to the
+ * archive's {@link FileChannel} in order. An index of every statement's chunk and position, and of
+ * its customer, is written when the writer is closed; {@link StatementArchiveReader} uses it to read
+ * any statement with one positioned read. The layout is described in {@link StatementArchiveFormat}.
+ * An index left by an earlier archive at the same path is deleted before the archive is truncated,
+ * so a crash while writing leaves no index rather than a stale one.
+ *
+ * <p>Only a bounded number of chunks wait for compression at a time, so a renderer faster than
+ * the compressors is slowed down rather than buffering without limit. Instances are not
+ * thread-safe.</p>
+ */
+public final class StatementArchiveWriter implements Closeable {
+
+    /**
+     * Default uncompressed size at which a chunk is closed.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final int INITIAL_STATEMENTS = 1024;
+    private static final int PENDING_CHUNKS_PER_THREAD = 2;
+
+    /**
+     * How each chunk is stored.
+     */
+    public enum Compression {
+        NONE,
+        DEFLATE,
+        GZIP
+    }
+
+    private final FileChannel channel;
+    private final Path indexFile;
+    private final Compression compression;
+    private final int chunkSize;
+    private final ExecutorService compressors;
+    private final ExecutorService appender;
+    private final Semaphore pendingChunks;
+    private final Map<String, Integer> customerIndexes = new HashMap<>();
+    private final List<String> customers = new ArrayList<>();
+    // written by the appender thread, read on close after the last chunk is appended
+    private final List<long[]> chunks = new ArrayList<>();
+    private long appendPosition = StatementArchiveFormat.HEADER_SIZE;
+    private CompletableFuture<Void> appended = CompletableFuture.completedFuture(null);
+    private ByteArrayOutputStream chunk;
+    private int chunkCount;
+    private int[] entries = new int[INITIAL_STATEMENTS * Entry.FIELDS];
+    private long statementCount;
+    private boolean closed;
+
+    private StatementArchiveWriter(FileChannel channel, Path indexFile, Compression compression, int chunkSize,
+                                   int compressionThreads) throws IOException {
+        this.channel = channel;
+        this.indexFile = indexFile;
+        this.compression = compression;
+        this.chunkSize = chunkSize;
+        this.chunk = new ByteArrayOutputStream(chunkSize);
+        this.compressors = Executors.newFixedThreadPool(compressionThreads, task -> daemon(task, "archive-compress"));
+        this.appender = Executors.newSingleThreadExecutor(task -> daemon(task, "archive-append"));
+        this.pendingChunks = new Semaphore(compressionThreads * PENDING_CHUNKS_PER_THREAD);
+        final ByteBuffer header = ByteBuffer.allocate(StatementArchiveFormat.HEADER_SIZE);
+        header.putInt(StatementArchiveFormat.ARCHIVE_MAGIC).putInt(StatementArchiveFormat.VERSION)
+                .putInt(compression.ordinal()).flip();
+        writeFully(channel, header);
+    }
+
+    /**
+     * Creates or truncates an archive with the default chunk size and one compression thread per core.
+     *
+     * @param file the archive; the index is written next to it
+     * @param compression how chunks are stored
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static StatementArchiveWriter create(Path file, Compression compression) throws IOException {
+        return create(file, compression, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates or truncates an archive.
+     *
+     * @param file the archive; the index is written next to it
+     * @param compression how chunks are stored
+     * @param chunkSize the uncompressed size at which a chunk is closed
+     * @param compressionThreads the number of background compression threads
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     * @throws IllegalArgumentException if chunkSize or compressionThreads is not positive
+     */
+    public static StatementArchiveWriter create(Path file, Compression compression, int chunkSize,
+                                                int compressionThreads) throws IOException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(String.format("chunk size must be positive: %d", chunkSize));
+        }
+        if (compressionThreads < 1) {
+            throw new IllegalArgumentException(String.format("compression threads must be positive: %d",
+                    compressionThreads));
+        }
+        // drop the index of an earlier archive first, so it can never describe the new one
+        final Path indexFile = StatementArchiveFormat.indexFile(file);
+        if (Files.deleteIfExists(indexFile)) {
+            forceDirectory(indexFile);
+        }
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new StatementArchiveWriter(channel, indexFile, compression, chunkSize, compressionThreads);
+        }
+        catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private static void forceDirectory(Path file) {
+        try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+        catch (IOException exception) {
+            // some platforms cannot open or force directories
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        final Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Appends the statement of an invoice.
+     *
+     * @param invoice the invoice, whose customer is indexed
+     * @param statement the rendered statement
+     * @return the number of the statement in the archive, counting from 0
+     * @throws IOException if an earlier chunk could not be compressed or written
+     */
+    public long append(Invoice invoice, String statement) throws IOException {
+        return append(invoice.getCustomer(), statement);
+    }
+
+    /**
+     * Appends a statement.
+     *
+     * @param customer the customer the statement is for
+     * @param statement the rendered statement
+     * @return the number of the statement in the archive, counting from 0
+     * @throws IOException if an earlier chunk could not be compressed or written
+     */
+    public long append(String customer, String statement) throws IOException {
+        if (closed) {
+            throw new IOException("archive writer is closed");
+        }
+        if (appended.isCompletedExceptionally()) {
+            await();
+        }
+        final byte[] bytes = statement.getBytes(StandardCharsets.UTF_8);
+        Integer customerIndex = customerIndexes.get(customer);
+        if (customerIndex == null) {
+            customerIndex = customers.size();
+            customers.add(customer);
+            customerIndexes.put(customer, customerIndex);
+        }
+        final int entry = Math.toIntExact(statementCount * Entry.FIELDS);
+        if (entry == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[entry + Entry.CUSTOMER] = customerIndex;
+        entries[entry + Entry.CHUNK] = chunkCount;
+        entries[entry + Entry.OFFSET] = chunk.size();
+        entries[entry + Entry.LENGTH] = bytes.length;
+        chunk.write(bytes, 0, bytes.length);
+        if (chunk.size() >= chunkSize) {
+            submitChunk();
+        }
+        return statementCount++;
+    }
+
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    private void submitChunk() throws IOException {
+        try {
+            pendingChunks.acquire();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for chunk compression", exception);
+        }
+        final byte[] raw = chunk.toByteArray();
+        chunk = new ByteArrayOutputStream(chunkSize);
+        chunkCount++;
+        final CompletableFuture<byte[]> compressed;
+        if (compression == Compression.NONE) {
+            compressed = CompletableFuture.completedFuture(raw);
+        }
+        else {
+            compressed = CompletableFuture.supplyAsync(() -> compress(raw), compressors);
+        }
+        appended = appended.thenCombineAsync(compressed, (ignored, stored) -> {
+            appendChunk(stored, raw.length);
+            return null;
+        }, appender);
+        appended.whenComplete((ignored, failure) -> pendingChunks.release());
+    }
+
+    private byte[] compress(byte[] raw) {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(raw.length / 2);
+        if (compression == Compression.GZIP) {
+            try (GZIPOutputStream out = new GZIPOutputStream(result)) {
+                out.write(raw);
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            return result.toByteArray();
+        }
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            final byte[] buffer = new byte[Math.max(raw.length / 2, 1)];
+            while (!deflater.finished()) {
+                result.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+        finally {
+            deflater.end();
+        }
+        return result.toByteArray();
+    }
+
+    private void appendChunk(byte[] stored, int rawLength) {
+        try {
+            writeFully(channel, ByteBuffer.wrap(stored));
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        chunks.add(new long[] {appendPosition, stored.length, rawLength});
+        appendPosition += stored.length;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Waits for every submitted chunk to be written, rethrowing the first failure.
+     */
+    private void await() throws IOException {
+        try {
+            appended.join();
+        }
+        catch (CompletionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("could not archive a chunk", cause);
+        }
+    }
+
+    /**
+     * Writes the last chunk, waits for the background threads, forces the archive to disk and
+     * writes the index. The index is replaced atomically, so it never describes a partial archive.
+     *
+     * @throws IOException if a chunk or the index cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (chunk.size() > 0) {
+                submitChunk();
+            }
+            await();
+            channel.force(true);
+            writeIndex();
+        }
+        finally {
+            compressors.shutdownNow();
+            appender.shutdownNow();
+            channel.close();
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        final Path partial = indexFile.resolveSibling(indexFile.getFileName() + ".part");
+        try (FileChannel index = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(index)));
+            out.writeInt(StatementArchiveFormat.INDEX_MAGIC);
+            out.writeInt(StatementArchiveFormat.VERSION);
+            out.writeLong(statementCount);
+            out.writeInt(chunks.size());
+            for (final long[] written : chunks) {
+                out.writeLong(written[0]);
+                out.writeInt((int) written[1]);
+                out.writeInt((int) written[2]);
+            }
+            out.writeInt(customers.size());
+            for (final String customer : customers) {
+                out.writeUTF(customer);
+            }
+            for (int i = 0; i < statementCount * Entry.FIELDS; i++) {
+                out.writeInt(entries[i]);
+            }
+            out.flush();
+            index.force(true);
+        }
+        Files.move(partial, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(indexFile);
+    }
+
+    /**
+     * Field positions of one statement in the index entry array.
+     */
+    static final class Entry {
+
+        static final int CUSTOMER = 0;
+        static final int CHUNK = 1;
+        static final int OFFSET = 2;
+        static final int LENGTH = 3;
+        static final int FIELDS = 4;
+
+        private Entry() {
+        }
+    }
+}
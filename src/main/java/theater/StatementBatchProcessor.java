@@ -0,0 +1,260 @@
+package theater;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Renders statements for many invoices that share one play catalog, spreading the work
+ * over a fork-join pool. Statements are always returned in the same order as the invoices.
+ */
+public class StatementBatchProcessor implements AutoCloseable {
+
+    /**
+     * Number of invoices rendered by one task before it stops splitting.
+     */
+    public static final int SPLIT_THRESHOLD = 64;
+
+    /**
+     * Number of invoices buffered from a stream before they are rendered in parallel.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 4096;
+
+    private final Map<String, Play> plays;
+    private final BiFunction<Invoice, Map<String, Play>, ? extends StatementPrinter> printerFactory;
+    private final ForkJoinPool pool;
+    private final int windowSize;
+
+    /**
+     * Creates a processor rendering plain-text statements on all available cores.
+     *
+     * @param plays a map of play IDs to Play objects
+     */
+    public StatementBatchProcessor(Map<String, Play> plays) {
+        this(plays, StatementPrinter::new, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a processor with an explicit printer type and parallelism.
+     *
+     * @param plays a map of play IDs to Play objects
+     * @param printerFactory creates the printer used for one invoice, e.g. {@code HTMLStatementPrinter::new}
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public StatementBatchProcessor(Map<String, Play> plays,
+                                   BiFunction<Invoice, Map<String, Play>, ? extends StatementPrinter> printerFactory,
+                                   int parallelism) {
+        this(plays, printerFactory, parallelism, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a processor with an explicit printer type, parallelism and stream window size.
+     *
+     * @param plays a map of play IDs to Play objects
+     * @param printerFactory creates the printer used for one invoice, e.g. {@code HTMLStatementPrinter::new}
+     * @param parallelism the number of worker threads
+     * @param windowSize the number of streamed invoices rendered together
+     * @throws IllegalArgumentException if parallelism or windowSize is not positive
+     */
+    public StatementBatchProcessor(Map<String, Play> plays,
+                                   BiFunction<Invoice, Map<String, Play>, ? extends StatementPrinter> printerFactory,
+                                   int parallelism,
+                                   int windowSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("parallelism must be positive: %d", parallelism));
+        }
+        if (windowSize < 1) {
+            throw new IllegalArgumentException(String.format("window size must be positive: %d", windowSize));
+        }
+        this.plays = plays;
+        this.printerFactory = printerFactory;
+        this.pool = new ForkJoinPool(parallelism);
+        this.windowSize = windowSize;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Renders a statement for every invoice in the collection.
+     *
+     * @param invoices the invoices to render
+     * @return the statements, in the iteration order of the collection, and the throughput of the run
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public BatchResult process(Collection<? extends Invoice> invoices) {
+        final long start = System.nanoTime();
+        final Invoice[] batch = invoices.toArray(new Invoice[0]);
+        final String[] statements = render(batch, batch.length);
+        final BatchStatistics statistics = new BatchStatistics(batch.length, System.nanoTime() - start,
+                getParallelism());
+        return new BatchResult(Collections.unmodifiableList(Arrays.asList(statements)), statistics);
+    }
+
+    /**
+     * Renders a statement for every invoice in the stream, handing each statement to the sink
+     * in stream order. Only one window of invoices is held in memory at a time.
+     *
+     * @param invoices the invoices to render
+     * @param sink receives the statements, always from the calling thread
+     * @return the throughput of the run
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public BatchStatistics process(Stream<? extends Invoice> invoices, Consumer<? super String> sink) {
+        final long start = System.nanoTime();
+        final Invoice[] window = new Invoice[windowSize];
+        final Iterator<? extends Invoice> iterator = invoices.iterator();
+        long count = 0;
+        while (iterator.hasNext()) {
+            int size = 0;
+            while (size < window.length && iterator.hasNext()) {
+                window[size++] = iterator.next();
+            }
+            final String[] statements = render(window, size);
+            for (int i = 0; i < size; i++) {
+                sink.accept(statements[i]);
+            }
+            Arrays.fill(window, 0, size, null);
+            count += size;
+        }
+        return new BatchStatistics(count, System.nanoTime() - start, getParallelism());
+    }
+
+    private String[] render(Invoice[] invoices, int size) {
+        final String[] statements = new String[size];
+        if (size > 0) {
+            pool.invoke(new RenderTask(invoices, statements, 0, size));
+        }
+        return statements;
+    }
+
+    /**
+     * Shuts down the worker threads and waits for running tasks to finish.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Renders the statements for a range of invoices, splitting the range in half until it is small.
+     */
+    private final class RenderTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Invoice[] invoices;
+        private final String[] statements;
+        private final int from;
+        private final int to;
+
+        RenderTask(Invoice[] invoices, String[] statements, int from, int to) {
+            this.invoices = invoices;
+            this.statements = statements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    statements[i] = printerFactory.apply(invoices[i], plays).statement();
+                }
+            }
+            else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RenderTask(invoices, statements, from, middle),
+                        new RenderTask(invoices, statements, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Statements produced by a batch run together with its throughput.
+     */
+    public static final class BatchResult {
+
+        private final List<String> statements;
+        private final BatchStatistics statistics;
+
+        BatchResult(List<String> statements, BatchStatistics statistics) {
+            this.statements = statements;
+            this.statistics = statistics;
+        }
+
+        public List<String> getStatements() {
+            return statements;
+        }
+
+        public BatchStatistics getStatistics() {
+            return statistics;
+        }
+    }
+
+    /**
+     * Throughput figures for one batch run.
+     */
+    public static final class BatchStatistics {
+
+        private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+        private final long invoiceCount;
+        private final long elapsedNanos;
+        private final int parallelism;
+
+        BatchStatistics(long invoiceCount, long elapsedNanos, int parallelism) {
+            this.invoiceCount = invoiceCount;
+            this.elapsedNanos = elapsedNanos;
+            this.parallelism = parallelism;
+        }
+
+        public long getInvoiceCount() {
+            return invoiceCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        /**
+         * Returns the number of invoices rendered per second of wall-clock time.
+         *
+         * @return invoices per second, or 0 if nothing was rendered
+         */
+        public double getInvoicesPerSecond() {
+            double result = 0;
+            if (elapsedNanos > 0) {
+                result = invoiceCount * NANOS_PER_SECOND / elapsedNanos;
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d invoices in %.3f s on %d threads (%.1f invoices/s)",
+                    invoiceCount, elapsedNanos / NANOS_PER_SECOND, parallelism, getInvoicesPerSecond());
+        }
+    }
+}
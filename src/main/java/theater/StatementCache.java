@@ -0,0 +1,239 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of rendered statements. Entries are keyed by the invoice contents,
+ * the output format and the catalog instance, so a statement is reused only for an equal invoice
+ * rendered the same way from the same {@link PlayCatalog}. Catalogs are immutable, so when the plays
+ * change a new catalog is built; the first statement stored for a newer catalog evicts every entry of
+ * the older ones, and statements still rendered from an older catalog are no longer stored. A cache
+ * therefore serves one catalog at a time; use one cache per catalog that stays in use. The cache holds
+ * at most a given number of statement characters and evicts the least recently used statements first.
+ *
+ * <p>Statements are rendered outside the cache lock, so two threads missing on the same invoice at
+ * the same time may both render it.</p>
+ */
+public final class StatementCache {
+
+    /**
+     * Default limit on the total length of cached statements: 16 million characters.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 1L << 24;
+
+    private static final int HASH_MULTIPLIER = 31;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long weight;
+    private long liveSerial;
+
+    public StatementCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * Creates a cache holding at most maxWeight characters of statements.
+     *
+     * @param maxWeight the limit on the total length of cached statements
+     * @throws IllegalArgumentException if maxWeight is not positive
+     */
+    public StatementCache(long maxWeight) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException(String.format("max weight must be positive: %d", maxWeight));
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the statement for the invoice, rendering and caching it on a miss.
+     *
+     * @param invoice the invoice
+     * @param catalog the play catalog
+     * @param renderer the output format, e.g. {@link StatementTemplate#PLAIN_TEXT}
+     * @return the statement
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public String statement(Invoice invoice, PlayCatalog catalog, StatementRenderer renderer) {
+        final Key key = new Key(invoice, renderer, catalog.getSerial());
+        final String cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        return store(key, render(new StatementData(invoice, catalog), renderer));
+    }
+
+    private String lookup(Key key) {
+        final String result;
+        synchronized (entries) {
+            result = entries.get(key);
+        }
+        if (result == null) {
+            misses.increment();
+        }
+        else {
+            hits.increment();
+        }
+        return result;
+    }
+
+    private static String render(StatementModel statementData, StatementRenderer renderer) {
+        final StringBuilder result = new StringBuilder();
+        try {
+            renderer.render(statementData, result);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return result.toString();
+    }
+
+    private String store(Key key, String statement) {
+        if (statement.length() > maxWeight) {
+            return statement;
+        }
+        synchronized (entries) {
+            if (key.catalogSerial < liveSerial) {
+                return statement;
+            }
+            if (key.catalogSerial > liveSerial) {
+                evictOtherCatalogs(key.catalogSerial);
+            }
+            final String previous = entries.put(key, statement);
+            if (previous != null) {
+                weight -= previous.length();
+            }
+            weight += statement.length();
+            final Iterator<String> eldest = entries.values().iterator();
+            while (weight > maxWeight) {
+                weight -= eldest.next().length();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        return statement;
+    }
+
+    private void evictOtherCatalogs(long serial) {
+        final Iterator<Map.Entry<Key, String>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Key, String> entry = iterator.next();
+            if (entry.getKey().catalogSerial != serial) {
+                weight -= entry.getValue().length();
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+        liveSerial = serial;
+    }
+
+    /**
+     * Removes every cached statement.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of cached statements.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the total length of the cached statements.
+     *
+     * @return the number of characters held
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    /**
+     * Invoice contents plus how they are rendered. The hash is computed once; equality compares
+     * every field, so a hash collision never returns another invoice's statement.
+     */
+    private static final class Key {
+
+        private final String customer;
+        private final String[] playIDs;
+        private final int[] audiences;
+        private final StatementRenderer renderer;
+        private final long catalogSerial;
+        private final int hash;
+
+        Key(Invoice invoice, StatementRenderer renderer, long catalogSerial) {
+            final List<Performance> performances = invoice.getPerformances();
+            this.customer = invoice.getCustomer();
+            this.playIDs = new String[performances.size()];
+            this.audiences = new int[performances.size()];
+            int result = Objects.hashCode(customer);
+            for (int i = 0; i < playIDs.length; i++) {
+                playIDs[i] = performances.get(i).getPlayID();
+                audiences[i] = performances.get(i).getAudience();
+                result = (result * HASH_MULTIPLIER + Objects.hashCode(playIDs[i])) * HASH_MULTIPLIER + audiences[i];
+            }
+            this.renderer = renderer;
+            this.catalogSerial = catalogSerial;
+            this.hash = (result * HASH_MULTIPLIER + System.identityHashCode(renderer)) * HASH_MULTIPLIER
+                    + Long.hashCode(catalogSerial);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return hash == key.hash
+                    && renderer == key.renderer
+                    && catalogSerial == key.catalogSerial
+                    && Objects.equals(customer, key.customer)
+                    && Arrays.equals(audiences, key.audiences)
+                    && Arrays.equals(playIDs, key.playIDs);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package theater;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Appendable that encodes rendered statements straight into a byte channel. The character and
+ * byte buffers are allocated once and reused for every statement written through this writer,
+ * so many statements can be streamed to a file or socket without building intermediate Strings.
+ * Instances are not thread-safe.
+ */
+public final class StatementChannelWriter implements Appendable, Flushable {
+
+    /**
+     * Default size of the character and byte buffers.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private long bytesWritten;
+
+    /**
+     * Creates a UTF-8 writer for the channel.
+     *
+     * @param channel the destination; it is not closed by this writer
+     */
+    public StatementChannelWriter(WritableByteChannel channel) {
+        this(channel, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a writer for the channel.
+     *
+     * @param channel the destination; it is not closed by this writer
+     * @param charset the character encoding of the output
+     * @param bufferSize the number of characters buffered before they are encoded
+     */
+    public StatementChannelWriter(WritableByteChannel channel, Charset charset, int bufferSize) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder();
+        this.chars = CharBuffer.allocate(bufferSize);
+        this.bytes = ByteBuffer.allocateDirect((int) Math.ceil(bufferSize * encoder.maxBytesPerChar()));
+    }
+
+    @Override
+    public StatementChannelWriter append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public StatementChannelWriter append(CharSequence csq, int start, int end) throws IOException {
+        int next = start;
+        while (next < end) {
+            if (!chars.hasRemaining()) {
+                drain();
+            }
+            final int count = Math.min(chars.remaining(), end - next);
+            for (int i = 0; i < count; i++) {
+                chars.put(csq.charAt(next + i));
+            }
+            next += count;
+        }
+        return this;
+    }
+
+    @Override
+    public StatementChannelWriter append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            drain();
+        }
+        chars.put(c);
+        return this;
+    }
+
+    /**
+     * Encodes and writes all buffered characters to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Points the writer at another channel, dropping anything still buffered, so one writer's
+     * buffers can serve statements that go to different channels.
+     *
+     * @param target the new destination, or null while the writer is idle
+     */
+    void reset(WritableByteChannel target) {
+        channel = target;
+        encoder.reset();
+        chars.clear();
+        bytes.clear();
+        bytesWritten = 0;
+    }
+
+    /**
+     * Tells whether the writer has a channel to write to.
+     *
+     * @return false after {@code reset(null)}
+     */
+    boolean isAttached() {
+        return channel != null;
+    }
+
+    /**
+     * Returns the number of bytes written to the channel so far.
+     *
+     * @return bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void drain() throws IOException {
+        chars.flip();
+        CoderResult result = encoder.encode(chars, bytes, false);
+        while (result.isOverflow()) {
+            writeBytes();
+            result = encoder.encode(chars, bytes, false);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        chars.compact();
+        writeBytes();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            bytesWritten += channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
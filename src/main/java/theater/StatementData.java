@@ -1,16 +1,21 @@
 package theater;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Data transfer object used to separate calculation from rendering.
+ * Totals are computed once, while the performances are priced.
  */
-public class StatementData {
+public class StatementData implements StatementModel {
 
     private final String customer;
     private final List<PerformanceData> performances = new ArrayList<>();
+    private int totalAmount;
+    private int volumeCredits;
 
     /**
      * Constructs a StatementData object by computing amounts and credits
@@ -20,66 +25,149 @@ public class StatementData {
      * @param plays a map of play IDs to Play objects
      */
     public StatementData(Invoice invoice, Map<String, Play> plays) {
+        this(invoice, plays, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Constructs a StatementData object, pricing each performance with the strategies
+     * from the given registry.
+     *
+     * @param invoice the invoice information
+     * @param plays a map of play IDs to Play objects
+     * @param pricingRegistry the pricing strategies by play type
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public StatementData(Invoice invoice, Map<String, Play> plays, PricingRegistry pricingRegistry) {
         this.customer = invoice.getCustomer();
+        final Map<Play, PricingStrategy> resolved = new IdentityHashMap<>();
+        final MetricsRecorder recorder = Metrics.recorder();
         for (Performance p : invoice.getPerformances()) {
             final Play play = plays.get(p.getPlayID());
-            final AbstractPerformanceCalculator calculator =
-                AbstractPerformanceCalculator.createPerformanceCalculator(p, play);
-
-            final int amount = calculator.amountFor();
-            final int volumeCredits = calculator.volumeCredits();
-
-            performances.add(
-                new PerformanceData(
-                    play.getName(),
-                    play.getType(),
-                    p.getAudience(),
-                    amount,
-                    volumeCredits));
+            PricingStrategy pricing = resolved.get(play);
+            if (pricing == null) {
+                pricing = pricingRegistry.forPlay(play);
+                resolved.put(play, pricing);
+            }
+            add(play, pricing, p.getAudience(), recorder);
         }
     }
 
+    /**
+     * Constructs a StatementData object, resolving plays through the catalog by their int index.
+     *
+     * @param invoice the invoice information
+     * @param catalog the play catalog
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public StatementData(Invoice invoice, PlayCatalog catalog) {
+        this(invoice, catalog, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Constructs a StatementData object, resolving plays through the catalog by their int index
+     * and pricing each performance with the strategies from the given registry.
+     *
+     * @param invoice the invoice information
+     * @param catalog the play catalog
+     * @param pricingRegistry the pricing strategies by play type
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public StatementData(Invoice invoice, PlayCatalog catalog, PricingRegistry pricingRegistry) {
+        this.customer = invoice.getCustomer();
+        final MetricsRecorder recorder = Metrics.recorder();
+        for (Performance p : invoice.getPerformances()) {
+            final int index = catalog.indexOf(p);
+            if (index < 0) {
+                throw new UnknownPlayException(p.getPlayID());
+            }
+            add(catalog.getPlay(index), catalog.pricing(index, pricingRegistry), p.getAudience(), recorder);
+        }
+    }
+
+    private void add(Play play, PricingStrategy pricing, int audience, MetricsRecorder recorder) {
+        final int amount = pricing.amountFor(audience);
+        final int credits = pricing.volumeCredits(audience);
+        recorder.performancePriced(play.getType());
+
+        performances.add(
+            new PerformanceData(
+                play.getName(),
+                play.getType(),
+                audience,
+                amount,
+                credits));
+        totalAmount += amount;
+        volumeCredits += credits;
+    }
+
     /**
      * Returns the customer for this statement data.
      *
      * @return customer name
      */
+    @Override
     public String getCustomer() {
         return customer;
     }
 
     /**
-     * Returns the performances included in this statement data.
+     * Returns the performances included in this statement data. The totals are summed once as
+     * the lines are built, so the list is read-only: a line added or removed through it would no
+     * longer be reflected in {@link #totalAmount()} and {@link #volumeCredits()}.
      *
-     * @return list of performance data
+     * @return unmodifiable list of performance data
      */
     public List<PerformanceData> getPerformances() {
-        return performances;
+        return Collections.unmodifiableList(performances);
+    }
+
+    @Override
+    public int size() {
+        return performances.size();
+    }
+
+    @Override
+    public String getName(int index) {
+        return performances.get(index).getName();
+    }
+
+    @Override
+    public String getType(int index) {
+        return performances.get(index).getType();
+    }
+
+    @Override
+    public int getAudience(int index) {
+        return performances.get(index).getAudience();
+    }
+
+    @Override
+    public int getAmount(int index) {
+        return performances.get(index).getAmount();
+    }
+
+    @Override
+    public int getVolumeCredits(int index) {
+        return performances.get(index).getVolumeCredits();
     }
 
     /**
-     * Computes the total amount for all performances in cents.
+     * Returns the total amount for all performances in cents.
      *
      * @return total amount in cents
      */
+    @Override
     public int totalAmount() {
-        int result = 0;
-        for (final PerformanceData pd : performances) {
-            result += pd.getAmount();
-        }
-        return result;
+        return totalAmount;
     }
 
     /**
-     * Computes the total volume credits for all performances.
+     * Returns the total volume credits for all performances.
      *
      * @return total volume credits
      */
+    @Override
     public int volumeCredits() {
-        int result = 0;
-        for (final PerformanceData pd : performances) {
-            result += pd.getVolumeCredits();
-        }
-        return result;
+        return volumeCredits;
     }
 }
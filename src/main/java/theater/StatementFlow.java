@@ -0,0 +1,145 @@
+package theater;
+
+import java.io.StringReader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reactive statement pipeline for a continuous feed of invoices, as {@link Flow.Processor} stages:
+ * parse JSON into invoices, price invoices into {@link StatementData}, and render statements.
+ * Every stage publishes through a buffer of a fixed size and requests more input only as it
+ * publishes output, so a slow subscriber throttles everything upstream instead of growing the heap.
+ *
+ * <p>Items submitted to a stage before it has a subscriber are dropped, so subscribe the downstream
+ * stages first.</p>
+ */
+public final class StatementFlow {
+
+    /**
+     * Default buffer size of every stage.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = Flow.defaultBufferSize();
+
+    /**
+     * Delivers to subscribers like the default {@link java.util.concurrent.SubmissionPublisher} executor:
+     * on the common pool, unless it has a single thread that one blocked stage would take from all the
+     * others, and then on a new thread per delivery task.
+     */
+    private static final Executor DELIVERY = defaultDelivery();
+
+    private StatementFlow() {
+    }
+
+    private static Executor defaultDelivery() {
+        if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return ForkJoinPool.commonPool();
+        }
+        return task -> new Thread(task).start();
+    }
+
+    /**
+     * Returns a stage that parses JSON documents, each one invoice or an array of invoices.
+     *
+     * @param catalog the catalog used to intern play IDs
+     * @param bufferSize the number of invoices buffered for each subscriber
+     * @return the stage; it fails if a document is not well formed
+     */
+    public static Flow.Processor<String, Invoice> parse(PlayCatalog catalog, int bufferSize) {
+        return new FlowStage<String, Invoice>((json, emit) ->
+                InvoiceJsonReader.readInvoices(new StringReader(json), catalog, emit),
+                DELIVERY, bufferSize);
+    }
+
+    /**
+     * Returns a stage that prices invoices on several threads and publishes them in arrival order.
+     *
+     * @param catalog the play catalog
+     * @param workers the executor that prices invoices
+     * @param parallelism the largest number of invoices priced at once
+     * @param bufferSize the number of priced invoices buffered for each subscriber
+     * @return the stage; it fails if an invoice refers to an unknown play or type
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public static Flow.Processor<Invoice, StatementData> price(PlayCatalog catalog, Executor workers,
+                                                                int parallelism, int bufferSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("parallelism must be positive: %d", parallelism));
+        }
+        return new OrderedPricingStage(invoice -> new StatementData(invoice, catalog), workers, parallelism,
+                DELIVERY, bufferSize);
+    }
+
+    /**
+     * Returns a stage that renders statement data.
+     *
+     * @param renderer the output format, e.g. {@link StatementTemplate#PLAIN_TEXT}
+     * @param bufferSize the number of statements buffered for each subscriber
+     * @return the stage
+     */
+    public static Flow.Processor<StatementModel, String> render(StatementRenderer renderer, int bufferSize) {
+        return new FlowStage<StatementModel, String>((statementData, emit) -> {
+            final StringBuilder result = new StringBuilder();
+            renderer.render(statementData, result);
+            emit.accept(result.toString());
+        }, DELIVERY, bufferSize);
+    }
+
+    /**
+     * Returns the pricing and rendering stages connected into one processor from invoices to statements.
+     *
+     * @param catalog the play catalog
+     * @param renderer the output format
+     * @param workers the executor that prices invoices
+     * @param parallelism the largest number of invoices priced at once
+     * @return the processor
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public static Flow.Processor<Invoice, String> statements(PlayCatalog catalog, StatementRenderer renderer,
+                                                             Executor workers, int parallelism) {
+        final Flow.Processor<Invoice, StatementData> pricing = price(catalog, workers, parallelism,
+                DEFAULT_BUFFER_SIZE);
+        final Flow.Processor<StatementModel, String> rendering = render(renderer, DEFAULT_BUFFER_SIZE);
+        pricing.subscribe(rendering);
+        return new Chain<>(pricing, rendering);
+    }
+
+    /**
+     * Two connected processors exposed as one: input goes to the first, subscribers attach to the last.
+     */
+    private static final class Chain<T, R> implements Flow.Processor<T, R> {
+
+        private final Flow.Subscriber<T> first;
+        private final Flow.Publisher<R> last;
+
+        Chain(Flow.Subscriber<T> first, Flow.Publisher<R> last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            first.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(T item) {
+            first.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            first.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            first.onComplete();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super R> subscriber) {
+            last.subscribe(subscriber);
+        }
+    }
+}
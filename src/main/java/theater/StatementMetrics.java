@@ -0,0 +1,163 @@
+package theater;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recorder that keeps counters and latency histograms in memory. Counters are striped
+ * {@link LongAdder}s and histograms are {@link LatencyHistogram}s, so recording never blocks.
+ * Install it with {@link Metrics#setRecorder(MetricsRecorder)} and publish it with {@link MetricsExporter}.
+ */
+public final class StatementMetrics implements MetricsRecorder, StatementMetricsMXBean {
+
+    private static final double P50 = 50;
+    private static final double P99 = 99;
+
+    private final LongAdder invoicesRendered = new LongAdder();
+    private final LongAdder charactersRendered = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final Map<String, LongAdder> performancesPriced = new ConcurrentHashMap<>();
+    private final LatencyHistogram computeNanos = new LatencyHistogram();
+    private final LatencyHistogram renderNanos = new LatencyHistogram();
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void performancePriced(String type) {
+        LongAdder counter = performancesPriced.get(type);
+        if (counter == null) {
+            counter = performancesPriced.computeIfAbsent(type, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    @Override
+    public void statementComputed(long nanos) {
+        computeNanos.record(nanos);
+    }
+
+    @Override
+    public void statementRendered(long nanos, long characters) {
+        invoicesRendered.increment();
+        charactersRendered.add(characters);
+        renderNanos.record(nanos);
+    }
+
+    @Override
+    public void bytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    @Override
+    public long getInvoicesRendered() {
+        return invoicesRendered.sum();
+    }
+
+    @Override
+    public long getCharactersRendered() {
+        return charactersRendered.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Returns the number of performances priced per play type.
+     * @return a sorted copy of the counts
+     */
+    @Override
+    public Map<String, Long> getPerformancesPriced() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (final Map.Entry<String, LongAdder> entry : performancesPriced.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    public LatencyHistogram getComputeNanos() {
+        return computeNanos;
+    }
+
+    public LatencyHistogram getRenderNanos() {
+        return renderNanos;
+    }
+
+    @Override
+    public long getComputeNanosP50() {
+        return computeNanos.getPercentile(P50);
+    }
+
+    @Override
+    public long getComputeNanosP99() {
+        return computeNanos.getPercentile(P99);
+    }
+
+    @Override
+    public long getComputeNanosMax() {
+        return computeNanos.getMax();
+    }
+
+    @Override
+    public long getRenderNanosP50() {
+        return renderNanos.getPercentile(P50);
+    }
+
+    @Override
+    public long getRenderNanosP99() {
+        return renderNanos.getPercentile(P99);
+    }
+
+    @Override
+    public long getRenderNanosMax() {
+        return renderNanos.getMax();
+    }
+
+    @Override
+    public void reset() {
+        invoicesRendered.reset();
+        charactersRendered.reset();
+        bytesWritten.reset();
+        for (final LongAdder counter : performancesPriced.values()) {
+            counter.reset();
+        }
+        computeNanos.reset();
+        renderNanos.reset();
+    }
+
+    /**
+     * Writes a snapshot of every metric, one {@code name=value} line each.
+     * @param out the destination
+     * @throws IOException if the output cannot be written
+     */
+    public void writeTo(Appendable out) throws IOException {
+        line(out, "invoices.rendered", getInvoicesRendered());
+        line(out, "characters.rendered", getCharactersRendered());
+        line(out, "bytes.written", getBytesWritten());
+        for (final Map.Entry<String, Long> entry : getPerformancesPriced().entrySet()) {
+            line(out, "performances.priced." + entry.getKey(), entry.getValue());
+        }
+        histogram(out, "compute.nanos", computeNanos);
+        histogram(out, "render.nanos", renderNanos);
+    }
+
+    private static void histogram(Appendable out, String name, LatencyHistogram histogram) throws IOException {
+        line(out, name + ".count", histogram.getCount());
+        line(out, name + ".p50", histogram.getPercentile(P50));
+        line(out, name + ".p99", histogram.getPercentile(P99));
+        line(out, name + ".max", histogram.getMax());
+    }
+
+    private static void line(Appendable out, String name, long value) throws IOException {
+        out.append(name).append('=');
+        UsdFormatter.appendInteger(out, value);
+        out.append(System.lineSeparator());
+    }
+}
@@ -0,0 +1,35 @@
+package theater;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link StatementMetrics}, registered by {@link MetricsExporter#registerMBean}.
+ * Times are in nanoseconds.
+ */
+public interface StatementMetricsMXBean {
+
+    long getInvoicesRendered();
+
+    long getCharactersRendered();
+
+    long getBytesWritten();
+
+    Map<String, Long> getPerformancesPriced();
+
+    long getComputeNanosP50();
+
+    long getComputeNanosP99();
+
+    long getComputeNanosMax();
+
+    long getRenderNanosP50();
+
+    long getRenderNanosP99();
+
+    long getRenderNanosMax();
+
+    /**
+     * Clears all counters and histograms.
+     */
+    void reset();
+}
@@ -0,0 +1,67 @@
+package theater;
+
+/**
+ * Read-only view of computed statement data that renderers work from. Performance lines are
+ * addressed by index, so implementations are free to store them as objects or as columns.
+ */
+public interface StatementModel {
+
+    /**
+     * Returns the customer for this statement.
+     * @return customer name
+     */
+    String getCustomer();
+
+    /**
+     * Returns the number of performance lines.
+     * @return number of performances
+     */
+    int size();
+
+    /**
+     * Returns the play name of a performance line.
+     * @param index the line, from 0 to size() - 1
+     * @return play name
+     */
+    String getName(int index);
+
+    /**
+     * Returns the play type of a performance line.
+     * @param index the line, from 0 to size() - 1
+     * @return play type
+     */
+    String getType(int index);
+
+    /**
+     * Returns the audience of a performance line.
+     * @param index the line, from 0 to size() - 1
+     * @return number of seats
+     */
+    int getAudience(int index);
+
+    /**
+     * Returns the amount of a performance line.
+     * @param index the line, from 0 to size() - 1
+     * @return amount in cents
+     */
+    int getAmount(int index);
+
+    /**
+     * Returns the volume credits of a performance line.
+     * @param index the line, from 0 to size() - 1
+     * @return volume credits
+     */
+    int getVolumeCredits(int index);
+
+    /**
+     * Returns the total amount for all performances.
+     * @return total amount in cents
+     */
+    int totalAmount();
+
+    /**
+     * Returns the total volume credits for all performances.
+     * @return total volume credits
+     */
+    int volumeCredits();
+}
@@ -1,19 +1,48 @@
 package theater;
 
-import java.text.NumberFormat;
-import java.util.Locale;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.Map;
 
 /**
  * This class generates a statement for a given invoice of performances.
  */
 public class StatementPrinter {
+    private static final ThreadLocal<StatementChannelWriter> CHANNEL_WRITERS =
+            ThreadLocal.withInitial(() -> new StatementChannelWriter(null));
+    private static final ClassValue<Boolean> OVERRIDES_PRICING_HOOKS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != StatementPrinter.class; c = c.getSuperclass()) {
+                if (declares(c, "getAmount") || declares(c, "getVolumeCredits")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
     private final Invoice invoice;
     private final Map<String, Play> plays;
+    private final PlayCatalog catalog;
+    private StatementTotals totals;
 
     public StatementPrinter(Invoice invoice, Map<String, Play> plays) {
         this.invoice = invoice;
         this.plays = plays;
+        this.catalog = null;
+    }
+
+    /**
+     * Creates a printer that resolves plays through the catalog by their int index.
+     * @param invoice the invoice to print
+     * @param catalog the play catalog
+     */
+    public StatementPrinter(Invoice invoice, PlayCatalog catalog) {
+        this.invoice = invoice;
+        this.plays = catalog.asMap();
+        this.catalog = catalog;
     }
 
     protected Invoice getInvoice() {
@@ -24,99 +53,179 @@ public class StatementPrinter {
         return plays;
     }
 
+    /**
+     * Returns the catalog this printer was created with.
+     * @return the catalog, or null if the printer was created with a map
+     */
+    protected PlayCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Computes the statement data for the invoice, by play index when a catalog is available.
+     * @return the statement data
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    protected StatementData createStatementData() {
+        if (catalog != null) {
+            return new StatementData(invoice, catalog);
+        }
+        return new StatementData(invoice, plays);
+    }
+
     /**
      * Returns a formatted statement of the invoice associated with this printer.
+     * The compute and render times are reported to the recorder in {@link Metrics}.
      * @return the formatted statement
-     * @throws RuntimeException if one of the play types is not known
+     * @throws UnknownPlayTypeException if one of the play types is not known
      */
     public String statement() {
-        final StatementData statementData = new StatementData(getInvoice(), getPlays());
-        return renderPlainText(statementData);
+        final MetricsRecorder recorder = Metrics.recorder();
+        if (!recorder.isEnabled()) {
+            return renderToString(createStatementData());
+        }
+        final long start = System.nanoTime();
+        final StatementData statementData = createStatementData();
+        final long computed = System.nanoTime();
+        final String result = renderToString(statementData);
+        recorder.statementComputed(computed - start);
+        recorder.statementRendered(System.nanoTime() - computed, result.length());
+        return result;
     }
 
-    private String renderPlainText(StatementData statementData) {
-        final StringBuilder result = new StringBuilder("Statement for "
-                + statementData.getCustomer() + System.lineSeparator());
-        for (final PerformanceData pd : statementData.getPerformances()) {
-            result.append(String.format("  %s: %s (%s seats)%n",
-                    pd.getName(), usd(pd.amountFor()), pd.getAudience()));
+    private String renderToString(StatementModel statementData) {
+        final StringBuilder result = new StringBuilder();
+        try {
+            render(statementData, result);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
         }
-        result.append(String.format("Amount owed is %s%n", usd(statementData.totalAmount())));
-        result.append(String.format("You earned %s credits%n", statementData.volumeCredits()));
         return result.toString();
     }
 
+    /**
+     * Writes the statement for the given data to the output as it is rendered.
+     * @param statementData the computed statement data
+     * @param out the destination of the statement
+     * @throws IOException if the output cannot be written
+     */
+    public void render(StatementModel statementData, Appendable out) throws IOException {
+        StatementTemplate.PLAIN_TEXT.render(statementData, out);
+    }
+
+    /**
+     * Writes the statement for the given data to a channel as UTF-8. The encode buffers are kept
+     * per thread and reused by later calls; to control buffer size or charset, render into a
+     * {@link StatementChannelWriter} instead.
+     * @param statementData the computed statement data
+     * @param channel the destination of the statement; it is not closed
+     * @throws IOException if the channel cannot be written
+     */
+    public void render(StatementModel statementData, WritableByteChannel channel) throws IOException {
+        StatementChannelWriter writer = CHANNEL_WRITERS.get();
+        if (writer.isAttached()) {
+            // a renderer wrote another statement while this thread's writer was in use
+            writer = new StatementChannelWriter(null);
+        }
+        writer.reset(channel);
+        try {
+            render(statementData, writer);
+            writer.flush();
+            Metrics.recorder().bytesWritten(writer.getBytesWritten());
+        }
+        finally {
+            writer.reset(null);
+        }
+    }
+
     protected Play getPlay(Performance performance) {
+        if (catalog != null) {
+            return catalog.getPlay(performance);
+        }
         return plays.get(performance.getPlayID());
     }
 
+    /**
+     * Prices one performance with the default registry. The totals are summed from this method,
+     * and from {@link #getVolumeCredits(Performance)}, only in subclasses that override one of them;
+     * otherwise they come from {@link StatementTotals}.
+     * @param performance the performance
+     * @return the amount in cents
+     */
     protected int getAmount(Performance performance) {
-        final Play play = getPlay(performance);
-        int result = 0;
-        switch (play.getType()) {
-            case Constants.TYPE_TRAGEDY:
-                result = Constants.TRAGEDY_BASE_AMOUNT;
-                if (performance.getAudience() > Constants.TRAGEDY_AUDIENCE_THRESHOLD) {
-                    result += Constants.TRAGEDY_OVER_BASE_CAPACITY_PER_PERSON
-                            * (performance.getAudience() - Constants.TRAGEDY_AUDIENCE_THRESHOLD);
-                }
-                break;
-            case Constants.TYPE_COMEDY:
-                result = Constants.COMEDY_BASE_AMOUNT;
-                if (performance.getAudience() > Constants.COMEDY_AUDIENCE_THRESHOLD) {
-                    result += Constants.COMEDY_OVER_BASE_CAPACITY_AMOUNT
-                            + (Constants.COMEDY_OVER_BASE_CAPACITY_PER_PERSON
-                            * (performance.getAudience() - Constants.COMEDY_AUDIENCE_THRESHOLD));
-                }
-                result += Constants.COMEDY_AMOUNT_PER_AUDIENCE * performance.getAudience();
-                break;
-            case Constants.TYPE_HISTORY:
-                result = Constants.HISTORY_BASE_AMOUNT;
-                if (performance.getAudience() > Constants.HISTORY_AUDIENCE_THRESHOLD) {
-                    result += Constants.HISTORY_OVER_BASE_CAPACITY_PER_PERSON
-                            * (performance.getAudience() - Constants.HISTORY_AUDIENCE_THRESHOLD);
-                }
-                break;
-            case Constants.TYPE_PASTORAL:
-                result = Constants.PASTORAL_BASE_AMOUNT;
-                if (performance.getAudience() > Constants.PASTORAL_AUDIENCE_THRESHOLD) {
-                    result += Constants.PASTORAL_OVER_BASE_CAPACITY_PER_PERSON
-                            * (performance.getAudience() - Constants.PASTORAL_AUDIENCE_THRESHOLD);
-                }
-                break;
-            default:
-                throw new RuntimeException(String.format("unknown type: %s", play.getType()));
-        }
-        return result;
+        return PricingRegistry.getDefault().forPlay(getPlay(performance)).amountFor(performance.getAudience());
     }
 
+    /**
+     * Computes the volume credits of one performance with the default registry.
+     * @param performance the performance
+     * @return the volume credits
+     * @see #getAmount(Performance)
+     */
     protected int getVolumeCredits(Performance performance) {
-        int result = 0;
-        final Play play = getPlay(performance);
-        result += Math.max(performance.getAudience() - Constants.BASE_VOLUME_CREDIT_THRESHOLD, 0);
-        if (Constants.TYPE_COMEDY.equals(play.getType())) {
-            result += performance.getAudience() / Constants.COMEDY_EXTRA_VOLUME_FACTOR;
-        }
-        return result;
+        return PricingRegistry.getDefault().forPlay(getPlay(performance)).volumeCredits(performance.getAudience());
     }
 
     protected static String usd(int amount) {
-        return NumberFormat.getCurrencyInstance(Locale.US).format(amount / Constants.PERCENT_FACTOR);
+        return UsdFormatter.format(amount);
     }
 
+    /**
+     * Returns the total amount owed, without building the statement lines.
+     * @return total amount in cents
+     * @throws ArithmeticException if the total does not fit in an int; use {@link StatementTotals} instead
+     */
     protected int getTotalAmount() {
-        int result = 0;
-        for (Performance p : invoice.getPerformances()) {
-            result += getAmount(p);
-        }
-        return result;
+        return Math.toIntExact(totals().getAmount());
     }
 
+    /**
+     * Returns the total volume credits earned, without building the statement lines.
+     * @return total volume credits
+     * @throws ArithmeticException if the total does not fit in an int; use {@link StatementTotals} instead
+     */
     protected int getTotalVolumeCredits() {
-        int result = 0;
-        for (Performance p : invoice.getPerformances()) {
-            result += getVolumeCredits(p);
+        return Math.toIntExact(totals().getVolumeCredits());
+    }
+
+    private StatementTotals totals() {
+        if (totals == null) {
+            totals = getTotals();
+        }
+        return totals;
+    }
+
+    /**
+     * Computes the totals of the invoice, by play index when a catalog is available, or from the
+     * per-performance hooks when a subclass overrides them. The printer calls this once and keeps
+     * the result for {@link #getTotalAmount()} and {@link #getTotalVolumeCredits()}.
+     * @return the totals
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    protected StatementTotals getTotals() {
+        if (OVERRIDES_PRICING_HOOKS.get(getClass())) {
+            long amount = 0;
+            long credits = 0;
+            for (final Performance p : invoice.getPerformances()) {
+                amount += getAmount(p);
+                credits += getVolumeCredits(p);
+            }
+            return new StatementTotals(amount, credits);
+        }
+        if (catalog != null) {
+            return StatementTotals.of(invoice, catalog);
+        }
+        return StatementTotals.of(invoice, plays);
+    }
+
+    private static boolean declares(Class<?> type, String method) {
+        try {
+            type.getDeclaredMethod(method, Performance.class);
+            return true;
+        }
+        catch (NoSuchMethodException exception) {
+            return false;
         }
-        return result;
     }
 }
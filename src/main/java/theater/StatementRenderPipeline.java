@@ -0,0 +1,188 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders one computed statement into several formats at once. The statement data is priced once
+ * and the performance lines are visited once, each line being handed to every registered
+ * {@link StatementRenderer} in turn. Pipelines are immutable and thread-safe.
+ */
+public final class StatementRenderPipeline {
+
+    /**
+     * Format name of {@link StatementTemplate#PLAIN_TEXT} in {@link #standard()}.
+     */
+    public static final String TEXT = "text";
+    /**
+     * Format name of {@link StatementTemplate#HTML} in {@link #standard()}.
+     */
+    public static final String HTML = "html";
+    /**
+     * Format name of {@link CsvStatementRenderer} in {@link #standard()}.
+     */
+    public static final String CSV = "csv";
+    /**
+     * Format name of {@link JsonStatementRenderer} in {@link #standard()}.
+     */
+    public static final String JSON = "json";
+
+    private final String[] formats;
+    private final StatementRenderer[] renderers;
+
+    private StatementRenderPipeline(Map<String, StatementRenderer> renderers) {
+        this.formats = renderers.keySet().toArray(new String[0]);
+        this.renderers = renderers.values().toArray(new StatementRenderer[0]);
+    }
+
+    /**
+     * Returns a pipeline rendering plain text, HTML, CSV and JSON.
+     *
+     * @return the pipeline
+     */
+    public static StatementRenderPipeline standard() {
+        return builder()
+                .add(TEXT, StatementTemplate.PLAIN_TEXT)
+                .add(HTML, StatementTemplate.HTML)
+                .add(CSV, new CsvStatementRenderer())
+                .add(JSON, new JsonStatementRenderer())
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Prices the invoice once and renders it in every format.
+     *
+     * @param invoice the invoice
+     * @param catalog the play catalog
+     * @return the statements by format name, in registration order
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public Map<String, String> render(Invoice invoice, PlayCatalog catalog) {
+        return render(new StatementData(invoice, catalog));
+    }
+
+    /**
+     * Prices the invoice once and renders it in every format.
+     *
+     * @param invoice the invoice
+     * @param plays a map of play IDs to Play objects
+     * @return the statements by format name, in registration order
+     * @throws UnknownPlayTypeException if one of the play types is not known
+     */
+    public Map<String, String> render(Invoice invoice, Map<String, Play> plays) {
+        return render(new StatementData(invoice, plays));
+    }
+
+    /**
+     * Renders computed statement data in every format.
+     *
+     * @param statementData the computed statement data
+     * @return the statements by format name, in registration order
+     */
+    public Map<String, String> render(StatementModel statementData) {
+        final StringBuilder[] outputs = new StringBuilder[formats.length];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = new StringBuilder();
+        }
+        try {
+            render(statementData, outputs);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (int i = 0; i < formats.length; i++) {
+            result.put(formats[i], outputs[i].toString());
+        }
+        return result;
+    }
+
+    /**
+     * Renders computed statement data into one destination per format, for example a writer per output file.
+     *
+     * @param statementData the computed statement data
+     * @param outputs the destination of each format, by format name
+     * @throws IOException if an output cannot be written
+     * @throws IllegalArgumentException if a registered format has no destination
+     */
+    public void render(StatementModel statementData, Map<String, ? extends Appendable> outputs) throws IOException {
+        final Appendable[] destinations = new Appendable[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            destinations[i] = outputs.get(formats[i]);
+            if (destinations[i] == null) {
+                throw new IllegalArgumentException(String.format("no output for format: %s", formats[i]));
+            }
+        }
+        render(statementData, destinations);
+    }
+
+    private void render(StatementModel statementData, Appendable[] outputs) throws IOException {
+        for (int r = 0; r < renderers.length; r++) {
+            renderers[r].renderHeader(statementData, outputs[r]);
+        }
+        for (int i = 0; i < statementData.size(); i++) {
+            for (int r = 0; r < renderers.length; r++) {
+                renderers[r].renderLine(statementData, i, outputs[r]);
+            }
+        }
+        for (int r = 0; r < renderers.length; r++) {
+            renderers[r].renderFooter(statementData, outputs[r]);
+        }
+    }
+
+    /**
+     * Returns the registered renderers.
+     *
+     * @return an unmodifiable map of format name to renderer, in registration order
+     */
+    public Map<String, StatementRenderer> getRenderers() {
+        final Map<String, StatementRenderer> result = new LinkedHashMap<>();
+        for (int i = 0; i < formats.length; i++) {
+            result.put(formats[i], renderers[i]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Builder for {@link StatementRenderPipeline}.
+     */
+    public static final class Builder {
+
+        private final Map<String, StatementRenderer> renderers = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Registers a format. Registering a name again replaces its renderer.
+         *
+         * @param format the format name
+         * @param renderer the renderer
+         * @return this builder
+         */
+        public Builder add(String format, StatementRenderer renderer) {
+            renderers.put(format, renderer);
+            return this;
+        }
+
+        /**
+         * Creates the pipeline.
+         *
+         * @return the pipeline
+         * @throws IllegalStateException if no format was registered
+         */
+        public StatementRenderPipeline build() {
+            if (renderers.isEmpty()) {
+                throw new IllegalStateException("at least one format must be registered");
+            }
+            return new StatementRenderPipeline(renderers);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package theater;
+
+import java.io.IOException;
+
+/**
+ * Output format for computed statement data. A statement is written as a header, one line per
+ * performance and a footer, so {@link StatementRenderPipeline} can drive several formats through
+ * a single pass over the performances. Implementations must be stateless and thread-safe.
+ */
+public interface StatementRenderer {
+
+    /**
+     * Writes the part of the statement before the performance lines.
+     * @param statementData the computed statement data
+     * @param out the destination of the statement
+     * @throws IOException if the output cannot be written
+     */
+    void renderHeader(StatementModel statementData, Appendable out) throws IOException;
+
+    /**
+     * Writes one performance line.
+     * @param statementData the computed statement data
+     * @param index the line, from 0 to size() - 1
+     * @param out the destination of the statement
+     * @throws IOException if the output cannot be written
+     */
+    void renderLine(StatementModel statementData, int index, Appendable out) throws IOException;
+
+    /**
+     * Writes the part of the statement after the performance lines.
+     * @param statementData the computed statement data
+     * @param out the destination of the statement
+     * @throws IOException if the output cannot be written
+     */
+    void renderFooter(StatementModel statementData, Appendable out) throws IOException;
+
+    /**
+     * Writes the whole statement.
+     * @param statementData the computed statement data
+     * @param out the destination of the statement
+     * @throws IOException if the output cannot be written
+     */
+    default void render(StatementModel statementData, Appendable out) throws IOException {
+        renderHeader(statementData, out);
+        for (int i = 0; i < statementData.size(); i++) {
+            renderLine(statementData, i, out);
+        }
+        renderFooter(statementData, out);
+    }
+}
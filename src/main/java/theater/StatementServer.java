@@ -0,0 +1,395 @@
+package theater;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
+/**
+ * Embedded HTTP service that renders statements. A {@code POST} to {@value #PATH} with an invoice,
+ * or a JSON array of invoices, returns their statements. The {@code Accept} header selects
+ * {@code text/plain} (the default) or {@code text/html}. Invoices that refer to an unknown play or
+ * type are answered with 422, and request bodies over the {@value #MAX_BODY_BYTES_PROPERTY}
+ * limit with 413.
+ *
+ * <p>The plays come from a {@link VersionedPlayCatalog}, which may be replaced while the server runs.
+ * Each request is rendered from one catalog snapshot, whose version is sent in the
+ * {@value #CATALOG_VERSION_HEADER} response header.</p>
+ *
+ * <p>Each exchange runs on its own virtual thread when the JDK provides them, and on a cached
+ * thread pool otherwise. Small responses are sent in one write, so start the JVM with
+ * {@code -Dsun.net.httpserver.nodelay=true} to keep Nagle's algorithm from delaying them.</p>
+ */
+public final class StatementServer implements AutoCloseable {
+
+    /**
+     * Path that accepts invoices.
+     */
+    public static final String PATH = "/statements";
+
+    /**
+     * Response header holding the version of the catalog a response was rendered from.
+     */
+    public static final String CATALOG_VERSION_HEADER = "X-Catalog-Version";
+
+    /**
+     * System property overriding {@link #DEFAULT_MAX_BODY_BYTES}; it is read when a server starts.
+     */
+    public static final String MAX_BODY_BYTES_PROPERTY = "theater.server.maxBodyBytes";
+
+    /**
+     * Largest request body accepted by default.
+     */
+    public static final long DEFAULT_MAX_BODY_BYTES = 16L * 1024 * 1024;
+
+    static final String TEXT_PLAIN = "text/plain";
+    static final String TEXT_HTML = "text/html";
+
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int NOT_ACCEPTABLE = 406;
+    private static final int PAYLOAD_TOO_LARGE = 413;
+    private static final int UNPROCESSABLE = 422;
+    private static final int INTERNAL_ERROR = 500;
+    private static final int EXACT_TYPE = 3;
+    private static final int SUBTYPE_WILDCARD = 2;
+    private static final int WILDCARD = 1;
+    private static final int DEFAULT_PORT = 8080;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final VersionedPlayCatalog catalog;
+    private final long maxBodyBytes;
+
+    private StatementServer(HttpServer server, ExecutorService executor, VersionedPlayCatalog catalog,
+                            long maxBodyBytes) {
+        this.server = server;
+        this.executor = executor;
+        this.catalog = catalog;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param address the address to listen on; port 0 picks a free port
+     * @param catalog the plays that invoices may refer to
+     * @return the running server
+     * @throws IOException if the server cannot be bound
+     */
+    public static StatementServer start(InetSocketAddress address, PlayCatalog catalog) throws IOException {
+        return start(address, new VersionedPlayCatalog(catalog));
+    }
+
+    /**
+     * Starts a server whose plays can be replaced while it runs.
+     *
+     * @param address the address to listen on; port 0 picks a free port
+     * @param catalog the plays that invoices may refer to
+     * @return the running server
+     * @throws IOException if the server cannot be bound
+     */
+    public static StatementServer start(InetSocketAddress address, VersionedPlayCatalog catalog)
+            throws IOException {
+        final HttpServer server = HttpServer.create(address, 0);
+        final ExecutorService executor = newPerRequestExecutor();
+        final long maxBodyBytes = Long.getLong(MAX_BODY_BYTES_PROPERTY, DEFAULT_MAX_BODY_BYTES);
+        if (maxBodyBytes <= 0) {
+            throw new IllegalArgumentException(String.format("%s must be positive: %d", MAX_BODY_BYTES_PROPERTY,
+                    maxBodyBytes));
+        }
+        final StatementServer result = new StatementServer(server, executor, catalog, maxBodyBytes);
+        server.createContext(PATH, result::handle);
+        server.setExecutor(executor);
+        server.start();
+        return result;
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor when the running JDK has one. It is looked up
+     * reflectively so the project still builds for Java 11.
+     */
+    private static ExecutorService newPerRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException exception) {
+            return Executors.newCachedThreadPool(task -> {
+                final Thread thread = new Thread(task, "statement-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Returns the catalog the server renders from; publish to it to change the plays.
+     *
+     * @return the catalog
+     */
+    public VersionedPlayCatalog getCatalog() {
+        return catalog;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, METHOD_NOT_ALLOWED, "only POST is supported");
+                return;
+            }
+            final String mediaType = negotiate(exchange.getRequestHeaders().getFirst("Accept"));
+            if (mediaType == null) {
+                sendText(exchange, NOT_ACCEPTABLE, "supported types: text/plain, text/html");
+                return;
+            }
+            final BiFunction<Invoice, PlayCatalog, StatementPrinter> printerFactory;
+            if (TEXT_HTML.equals(mediaType)) {
+                printerFactory = HTMLStatementPrinter::new;
+            }
+            else {
+                printerFactory = StatementPrinter::new;
+            }
+
+            final VersionedPlayCatalog.Snapshot snapshot = catalog.snapshot();
+            final PlayCatalog plays = snapshot.getCatalog();
+            final StringBuilder statements = new StringBuilder();
+            try (InputStream body = new LimitedInputStream(exchange.getRequestBody(), maxBodyBytes)) {
+                if (isTooLarge(exchange.getRequestHeaders().getFirst("Content-Length"))) {
+                    throw new BodyTooLargeException(maxBodyBytes);
+                }
+                final List<Invoice> invoices = new ArrayList<>();
+                InvoiceJsonReader.readInvoices(body, plays, invoices::add);
+                for (final Invoice invoice : invoices) {
+                    statements.append(printerFactory.apply(invoice, plays).statement());
+                }
+            }
+            catch (BodyTooLargeException exception) {
+                sendText(exchange, PAYLOAD_TOO_LARGE, exception.getMessage());
+                return;
+            }
+            catch (IOException exception) {
+                sendText(exchange, BAD_REQUEST, String.format("invalid invoice JSON: %s", exception.getMessage()));
+                return;
+            }
+            catch (UnknownPlayException | UnknownPlayTypeException exception) {
+                sendText(exchange, UNPROCESSABLE, exception.getMessage());
+                return;
+            }
+            catch (RuntimeException exception) {
+                sendText(exchange, INTERNAL_ERROR, "statements could not be rendered");
+                return;
+            }
+            exchange.getResponseHeaders().set(CATALOG_VERSION_HEADER, String.valueOf(snapshot.getVersion()));
+            send(exchange, OK, mediaType, statements.toString());
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private boolean isTooLarge(String contentLength) {
+        if (contentLength == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(contentLength.trim()) > maxBodyBytes;
+        }
+        catch (NumberFormatException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Picks the response type from an Accept header by quality value. Each type takes the quality of
+     * the most specific range that matches it, so <code>text/plain;q=0, &#42;/&#42;</code> excludes
+     * plain text. Plain text wins ties.
+     *
+     * @param accept the header value, or null
+     * @return {@link #TEXT_PLAIN}, {@link #TEXT_HTML}, or null if neither is acceptable
+     */
+    static String negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return TEXT_PLAIN;
+        }
+        final String[] ranges = accept.split(",");
+        final double plainQuality = quality(ranges, TEXT_PLAIN);
+        final double htmlQuality = quality(ranges, TEXT_HTML);
+        String result = null;
+        if (htmlQuality > plainQuality) {
+            result = TEXT_HTML;
+        }
+        else if (plainQuality > 0) {
+            result = TEXT_PLAIN;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the quality the ranges give a media type: that of the most specific matching range,
+     * or 0 if none matches.
+     */
+    private static double quality(String[] ranges, String mediaType) {
+        int bestSpecificity = 0;
+        double result = 0;
+        for (final String range : ranges) {
+            final String[] parts = range.split(";");
+            final String type = parts[0].trim().toLowerCase(Locale.ROOT);
+            final int specificity = specificity(type, mediaType);
+            if (specificity > bestSpecificity) {
+                bestSpecificity = specificity;
+                result = quality(parts);
+            }
+            else if (specificity > 0 && specificity == bestSpecificity) {
+                result = Math.max(result, quality(parts));
+            }
+        }
+        return result;
+    }
+
+    private static int specificity(String range, String mediaType) {
+        if (range.equals(mediaType)) {
+            return EXACT_TYPE;
+        }
+        if (range.equals("text/*") && mediaType.startsWith("text/")) {
+            return SUBTYPE_WILDCARD;
+        }
+        if (range.equals("*/*")) {
+            return WILDCARD;
+        }
+        return 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            final String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                }
+                catch (NumberFormatException exception) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, TEXT_PLAIN, message + System.lineSeparator());
+    }
+
+    private static void send(HttpExchange exchange, int status, String mediaType, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        final Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", mediaType + "; charset=utf-8");
+        headers.set("Vary", "Accept");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Rejected request body; a separate type so it is not reported as malformed JSON.
+     */
+    private static final class BodyTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        BodyTooLargeException(long limit) {
+            super(String.format("request body exceeds %d bytes", limit));
+        }
+    }
+
+    /**
+     * Fails once more than a given number of bytes has been read, for bodies sent without a
+     * Content-Length.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+        private final long limit;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = super.read();
+            if (result >= 0) {
+                count(1);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            final int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                count(result);
+            }
+            return result;
+        }
+
+        private void count(int bytes) throws BodyTooLargeException {
+            remaining -= bytes;
+            if (remaining < 0) {
+                throw new BodyTooLargeException(limit);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting requests, waits briefly for open exchanges and stops the worker threads.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the service until the process is stopped.
+     *
+     * @param args the plays JSON file, and optionally the port (8080 by default)
+     * @throws IOException if the plays cannot be read or the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("usage: StatementServer <plays.json> [port]");
+        }
+        final PlayCatalog catalog;
+        try (InputStream input = Files.newInputStream(Paths.get(args[0]))) {
+            catalog = PlayCatalog.of(InvoiceJsonReader.readPlays(input));
+        }
+        int port = DEFAULT_PORT;
+        if (args.length > 1) {
+            port = Integer.parseInt(args[1]);
+        }
+        final StatementServer server = start(new InetSocketAddress(port), catalog);
+        System.out.printf("serving statements on http://localhost:%d%s%n", server.getAddress().getPort(), PATH);
+    }
+}
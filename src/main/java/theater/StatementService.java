@@ -0,0 +1,297 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Long-lived, thread-safe statement renderer. Build one per catalog and call it from any number
+ * of threads. Pricing strategies are resolved once per play when the service is built, and each
+ * thread reuses its own statement columns and output buffer, so rendering a statement allocates
+ * little more than the returned String. The output is the same as that of {@link StatementPrinter}
+ * and {@link HTMLStatementPrinter}.
+ */
+public final class StatementService {
+
+    /**
+     * Output buffers that grew beyond this many characters are dropped after use, so one huge
+     * statement does not pin its buffer for the life of the thread.
+     */
+    private static final int MAX_RETAINED_CHARS = 1 << 16;
+    /**
+     * Line columns that grew beyond this many lines are dropped after use, for the same reason.
+     */
+    private static final int MAX_RETAINED_LINES = 1 << 12;
+    private static final int INITIAL_CHARS = 1 << 10;
+    private static final int INITIAL_LINES = 16;
+
+    private final PlayCatalog catalog;
+    private final PricingStrategy[] pricing;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Creates a service with the default pricing registry.
+     *
+     * @param plays a map of play IDs to Play objects; it is copied
+     */
+    public StatementService(Map<String, Play> plays) {
+        this(PlayCatalog.of(plays), PricingRegistry.getDefault());
+    }
+
+    /**
+     * Creates a service with the default pricing registry.
+     *
+     * @param catalog the play catalog
+     */
+    public StatementService(PlayCatalog catalog) {
+        this(catalog, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Creates a service. Plays whose type the registry does not support are accepted here and
+     * reported when an invoice refers to them, as {@link StatementData} does.
+     *
+     * @param catalog the play catalog
+     * @param pricingRegistry the pricing strategies by play type
+     */
+    public StatementService(PlayCatalog catalog, PricingRegistry pricingRegistry) {
+        this.catalog = catalog;
+        this.pricing = new PricingStrategy[catalog.size()];
+        for (int i = 0; i < pricing.length; i++) {
+            final String type = catalog.getPlay(i).getType();
+            if (pricingRegistry.supports(type)) {
+                pricing[i] = pricingRegistry.forType(type);
+            }
+        }
+    }
+
+    public PlayCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns the plain-text statement, as {@link StatementPrinter#statement()} does.
+     *
+     * @param invoice the invoice
+     * @return the statement
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public String statement(Invoice invoice) {
+        return statement(invoice, StatementTemplate.PLAIN_TEXT);
+    }
+
+    /**
+     * Returns the HTML statement, as {@link HTMLStatementPrinter#statement()} does.
+     *
+     * @param invoice the invoice
+     * @return the statement
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public String htmlStatement(Invoice invoice) {
+        return statement(invoice, StatementTemplate.HTML);
+    }
+
+    /**
+     * Returns the statement in the given format.
+     * The compute and render times are reported to the recorder in {@link Metrics}.
+     *
+     * @param invoice the invoice
+     * @param renderer the output format
+     * @return the statement
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public String statement(Invoice invoice, StatementRenderer renderer) {
+        final Scratch buffers = acquire();
+        try {
+            final MetricsRecorder recorder = Metrics.recorder();
+            if (!recorder.isEnabled()) {
+                buffers.compute(invoice);
+                return buffers.renderToString(renderer);
+            }
+            final long start = System.nanoTime();
+            buffers.compute(invoice);
+            final long computed = System.nanoTime();
+            final String result = buffers.renderToString(renderer);
+            recorder.statementComputed(computed - start);
+            recorder.statementRendered(System.nanoTime() - computed, result.length());
+            return result;
+        }
+        finally {
+            release(buffers);
+        }
+    }
+
+    /**
+     * Writes the statement in the given format to the output as it is rendered, without building
+     * a String.
+     *
+     * @param invoice the invoice
+     * @param renderer the output format
+     * @param out the destination of the statement
+     * @throws IOException if the output cannot be written
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public void render(Invoice invoice, StatementRenderer renderer, Appendable out) throws IOException {
+        final Scratch buffers = acquire();
+        try {
+            buffers.compute(invoice);
+            renderer.render(buffers, out);
+        }
+        finally {
+            release(buffers);
+        }
+    }
+
+    /**
+     * Returns this thread's scratch, or a fresh one if a renderer calls back into the service
+     * while the thread's scratch is in use.
+     */
+    private Scratch acquire() {
+        final Scratch result = scratch.get();
+        if (result.inUse) {
+            return new Scratch();
+        }
+        result.inUse = true;
+        return result;
+    }
+
+    private void release(Scratch buffers) {
+        buffers.inUse = false;
+        if (buffers.out.capacity() > MAX_RETAINED_CHARS) {
+            buffers.out = new StringBuilder(INITIAL_CHARS);
+        }
+        buffers.clear();
+    }
+
+    /**
+     * Statement columns and output buffer owned by one thread and overwritten by each statement.
+     */
+    private final class Scratch implements StatementModel {
+
+        private StringBuilder out = new StringBuilder(INITIAL_CHARS);
+        private boolean inUse;
+        private String customer;
+        private Play[] plays = new Play[INITIAL_LINES];
+        private int[] audiences = new int[INITIAL_LINES];
+        private int[] amounts = new int[INITIAL_LINES];
+        private int[] credits = new int[INITIAL_LINES];
+        private int size;
+        private int totalAmount;
+        private int volumeCredits;
+
+        void compute(Invoice invoice) {
+            final List<Performance> performances = invoice.getPerformances();
+            ensureCapacity(performances.size());
+            final MetricsRecorder recorder = Metrics.recorder();
+            customer = invoice.getCustomer();
+            size = 0;
+            totalAmount = 0;
+            volumeCredits = 0;
+            for (final Performance p : performances) {
+                final int index = catalog.indexOf(p);
+                if (index < 0) {
+                    throw new UnknownPlayException(p.getPlayID());
+                }
+                final Play play = catalog.getPlay(index);
+                final PricingStrategy strategy = pricing[index];
+                if (strategy == null) {
+                    throw new UnknownPlayTypeException(play.getType());
+                }
+                plays[size] = play;
+                audiences[size] = p.getAudience();
+                amounts[size] = strategy.amountFor(p.getAudience());
+                credits[size] = strategy.volumeCredits(p.getAudience());
+                recorder.performancePriced(play.getType());
+                totalAmount += amounts[size];
+                volumeCredits += credits[size];
+                size++;
+            }
+        }
+
+        String renderToString(StatementRenderer renderer) {
+            out.setLength(0);
+            try {
+                renderer.render(this, out);
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            return out.toString();
+        }
+
+        /**
+         * Drops the references to the last statement's customer and plays, and columns that
+         * grew too large to keep.
+         */
+        void clear() {
+            customer = null;
+            if (plays.length > MAX_RETAINED_LINES) {
+                plays = new Play[INITIAL_LINES];
+                audiences = new int[INITIAL_LINES];
+                amounts = new int[INITIAL_LINES];
+                credits = new int[INITIAL_LINES];
+            }
+            else {
+                Arrays.fill(plays, 0, size, null);
+            }
+            size = 0;
+        }
+
+        private void ensureCapacity(int lines) {
+            if (lines > plays.length) {
+                final int capacity = Math.max(lines, plays.length * 2);
+                plays = Arrays.copyOf(plays, capacity);
+                audiences = Arrays.copyOf(audiences, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                credits = Arrays.copyOf(credits, capacity);
+            }
+        }
+
+        @Override
+        public String getCustomer() {
+            return customer;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String getName(int index) {
+            return plays[index].getName();
+        }
+
+        @Override
+        public String getType(int index) {
+            return plays[index].getType();
+        }
+
+        @Override
+        public int getAudience(int index) {
+            return audiences[index];
+        }
+
+        @Override
+        public int getAmount(int index) {
+            return amounts[index];
+        }
+
+        @Override
+        public int getVolumeCredits(int index) {
+            return credits[index];
+        }
+
+        @Override
+        public int totalAmount() {
+            return totalAmount;
+        }
+
+        @Override
+        public int volumeCredits() {
+            return volumeCredits;
+        }
+    }
+}
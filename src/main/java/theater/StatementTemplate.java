@@ -0,0 +1,176 @@
+package theater;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statement layout compiled once into literal text and field slots. Rendering appends the
+ * literals and writes numbers and amounts directly into the output, so no format strings are
+ * parsed and no intermediate Strings are built per performance line.
+ *
+ * <p>Patterns use {@code %n} for the platform line separator and the placeholders
+ * {@code {customer}}, {@code {totalAmount}} and {@code {credits}} anywhere, plus
+ * {@code {name}}, {@code {audience}} and {@code {amount}} in the per-performance line.</p>
+ */
+public final class StatementTemplate implements StatementRenderer {
+
+    /**
+     * The plain-text layout produced by {@link StatementPrinter}.
+     */
+    public static final StatementTemplate PLAIN_TEXT = compile(
+            "Statement for {customer}%n",
+            "  {name}: {amount} ({audience} seats)%n",
+            "Amount owed is {totalAmount}%n"
+                    + "You earned {credits} credits%n");
+
+    /**
+     * The HTML layout produced by {@link HTMLStatementPrinter}.
+     */
+    public static final StatementTemplate HTML = compile(
+            "<h1>Statement for {customer}</h1>%n"
+                    + "<table>%n"
+                    + " <caption>Statement for {customer}</caption>%n"
+                    + " <tr><th>play</th><th>seats</th><th>cost</th></tr>%n",
+            " <tr><td>{name}</td><td>{audience}</td><td>{amount}</td></tr>%n",
+            "</table>%n"
+                    + "<p>Amount owed is <em>{totalAmount}</em></p>%n"
+                    + "<p>You earned <em>{credits}</em> credits</p>%n");
+
+    private static final String LINE_SEPARATOR = "%n";
+
+    private final Section header;
+    private final Section line;
+    private final Section footer;
+
+    private StatementTemplate(Section header, Section line, Section footer) {
+        this.header = header;
+        this.line = line;
+        this.footer = footer;
+    }
+
+    /**
+     * Compiles a statement layout.
+     *
+     * @param header the text before the performance lines
+     * @param line the text repeated for every performance
+     * @param footer the text after the performance lines
+     * @return the compiled template
+     * @throws IllegalArgumentException if a pattern uses an unknown or misplaced placeholder
+     */
+    public static StatementTemplate compile(String header, String line, String footer) {
+        return new StatementTemplate(Section.parse(header, false), Section.parse(line, true),
+                Section.parse(footer, false));
+    }
+
+    @Override
+    public void renderHeader(StatementModel statementData, Appendable out) throws IOException {
+        header.render(statementData, -1, out);
+    }
+
+    @Override
+    public void renderLine(StatementModel statementData, int index, Appendable out) throws IOException {
+        line.render(statementData, index, out);
+    }
+
+    @Override
+    public void renderFooter(StatementModel statementData, Appendable out) throws IOException {
+        footer.render(statementData, -1, out);
+    }
+
+    /**
+     * Values that can be substituted into a template.
+     */
+    private enum Field {
+        CUSTOMER("customer", false),
+        TOTAL_AMOUNT("totalAmount", false),
+        CREDITS("credits", false),
+        NAME("name", true),
+        AUDIENCE("audience", true),
+        AMOUNT("amount", true);
+
+        private final String placeholder;
+        private final boolean perLine;
+
+        Field(String placeholder, boolean perLine) {
+            this.placeholder = placeholder;
+            this.perLine = perLine;
+        }
+
+        static Field forPlaceholder(String placeholder, boolean inLine) {
+            for (final Field field : values()) {
+                if (field.placeholder.equals(placeholder)) {
+                    if (field.perLine && !inLine) {
+                        throw new IllegalArgumentException(String.format(
+                                "placeholder {%s} is only allowed in the performance line", placeholder));
+                    }
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException(String.format("unknown placeholder: {%s}", placeholder));
+        }
+    }
+
+    /**
+     * One compiled pattern: literals.length == fields.length + 1, with fields[i] between literals i and i + 1.
+     */
+    private static final class Section {
+
+        private final String[] literals;
+        private final Field[] fields;
+
+        private Section(String[] literals, Field[] fields) {
+            this.literals = literals;
+            this.fields = fields;
+        }
+
+        static Section parse(String pattern, boolean inLine) {
+            final List<String> literals = new ArrayList<>();
+            final List<Field> fields = new ArrayList<>();
+            final String text = pattern.replace(LINE_SEPARATOR, System.lineSeparator());
+            int start = 0;
+            int open = text.indexOf('{');
+            while (open >= 0) {
+                final int close = text.indexOf('}', open);
+                if (close < 0) {
+                    throw new IllegalArgumentException(String.format("unterminated placeholder in: %s", pattern));
+                }
+                literals.add(text.substring(start, open));
+                fields.add(Field.forPlaceholder(text.substring(open + 1, close), inLine));
+                start = close + 1;
+                open = text.indexOf('{', start);
+            }
+            literals.add(text.substring(start));
+            return new Section(literals.toArray(new String[0]), fields.toArray(new Field[0]));
+        }
+
+        void render(StatementModel statementData, int index, Appendable out) throws IOException {
+            out.append(literals[0]);
+            for (int i = 0; i < fields.length; i++) {
+                switch (fields[i]) {
+                    case CUSTOMER:
+                        out.append(statementData.getCustomer());
+                        break;
+                    case TOTAL_AMOUNT:
+                        UsdFormatter.appendUsd(out, statementData.totalAmount());
+                        break;
+                    case CREDITS:
+                        UsdFormatter.appendInteger(out, statementData.volumeCredits());
+                        break;
+                    case NAME:
+                        out.append(statementData.getName(index));
+                        break;
+                    case AUDIENCE:
+                        UsdFormatter.appendInteger(out, statementData.getAudience(index));
+                        break;
+                    case AMOUNT:
+                        UsdFormatter.appendUsd(out, statementData.getAmount(index));
+                        break;
+                    default:
+                        throw new IllegalStateException(String.format("unhandled field: %s", fields[i]));
+                }
+                out.append(literals[i + 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package theater;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Amount owed and credits earned for an invoice, without the statement lines. Performances are
+ * priced one by one into {@code long} totals, so no per-line objects or play names are touched and
+ * large invoices do not overflow as the {@code int} totals of {@link StatementData} can.
+ * No statement is built, so nothing is reported to {@link Metrics}.
+ */
+public final class StatementTotals {
+
+    private final long amount;
+    private final long volumeCredits;
+
+    StatementTotals(long amount, long volumeCredits) {
+        this.amount = amount;
+        this.volumeCredits = volumeCredits;
+    }
+
+    /**
+     * Computes the totals of an invoice with the default pricing registry.
+     *
+     * @param invoice the invoice
+     * @param plays a map of play IDs to Play objects
+     * @return the totals
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public static StatementTotals of(Invoice invoice, Map<String, Play> plays) {
+        return of(invoice, plays, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Computes the totals of an invoice.
+     *
+     * @param invoice the invoice
+     * @param plays a map of play IDs to Play objects
+     * @param pricingRegistry the pricing strategies by play type
+     * @return the totals
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public static StatementTotals of(Invoice invoice, Map<String, Play> plays, PricingRegistry pricingRegistry) {
+        final Map<Play, PricingStrategy> resolved = new IdentityHashMap<>();
+        long amount = 0;
+        long credits = 0;
+        for (final Performance p : invoice.getPerformances()) {
+            final Play play = plays.get(p.getPlayID());
+            if (play == null) {
+                throw new UnknownPlayException(p.getPlayID());
+            }
+            PricingStrategy pricing = resolved.get(play);
+            if (pricing == null) {
+                pricing = pricingRegistry.forPlay(play);
+                resolved.put(play, pricing);
+            }
+            amount += pricing.amountFor(p.getAudience());
+            credits += pricing.volumeCredits(p.getAudience());
+        }
+        return new StatementTotals(amount, credits);
+    }
+
+    /**
+     * Computes the totals of an invoice with the default pricing registry, resolving plays
+     * through the catalog by their int index.
+     *
+     * @param invoice the invoice
+     * @param catalog the play catalog
+     * @return the totals
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public static StatementTotals of(Invoice invoice, PlayCatalog catalog) {
+        return of(invoice, catalog, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Computes the totals of an invoice, resolving plays through the catalog by their int index.
+     * Pricing strategies come from the catalog, which resolves each play's strategy once per registry
+     * rather than once per invoice.
+     *
+     * @param invoice the invoice
+     * @param catalog the play catalog
+     * @param pricingRegistry the pricing strategies by play type
+     * @return the totals
+     * @throws RuntimeException if one of the plays or play types is not known
+     */
+    public static StatementTotals of(Invoice invoice, PlayCatalog catalog, PricingRegistry pricingRegistry) {
+        long amount = 0;
+        long credits = 0;
+        for (final Performance p : invoice.getPerformances()) {
+            final int index = catalog.indexOf(p);
+            if (index < 0) {
+                throw new UnknownPlayException(p.getPlayID());
+            }
+            final PricingStrategy pricing = catalog.pricing(index, pricingRegistry);
+            amount += pricing.amountFor(p.getAudience());
+            credits += pricing.volumeCredits(p.getAudience());
+        }
+        return new StatementTotals(amount, credits);
+    }
+
+    /**
+     * Returns the total amount owed.
+     *
+     * @return total amount in cents
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Returns the total volume credits earned.
+     *
+     * @return total volume credits
+     */
+    public long getVolumeCredits() {
+        return volumeCredits;
+    }
+}
@@ -0,0 +1,20 @@
+package theater;
+
+/**
+ * Thrown when a performance refers to a play that is not in the catalog.
+ */
+public class UnknownPlayException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String playID;
+
+    public UnknownPlayException(String playID) {
+        super(String.format("unknown play: %s", playID));
+        this.playID = playID;
+    }
+
+    public String getPlayID() {
+        return playID;
+    }
+}
@@ -0,0 +1,20 @@
+package theater;
+
+/**
+ * Thrown when a play has a type that no pricing rule or strategy covers.
+ */
+public class UnknownPlayTypeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String type;
+
+    public UnknownPlayTypeException(String type) {
+        super(String.format("unknown type: %s", type));
+        this.type = type;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,95 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Formats amounts in cents the same way as {@code NumberFormat.getCurrencyInstance(Locale.US)} formats
+ * whole dollars (for example {@code $1,730.00}), writing the digits straight into the output
+ * instead of allocating a formatter and intermediate Strings.
+ */
+public final class UsdFormatter {
+
+    private static final int DECIMAL_RADIX = 10;
+    private static final int GROUP_SIZE = 3;
+    private static final String NO_CENTS = ".00";
+    private static final int MAX_DIGITS = 19;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < MAX_DIGITS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * DECIMAL_RADIX;
+        }
+    }
+
+    private UsdFormatter() {
+
+    }
+
+    /**
+     * Returns the amount formatted as US dollars. Cents are truncated, as in the original statement.
+     *
+     * @param cents amount in cents
+     * @return the formatted amount
+     */
+    public static String format(long cents) {
+        final StringBuilder result = new StringBuilder();
+        try {
+            appendUsd(result, cents);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Appends the amount formatted as US dollars. Cents are truncated, as in the original statement.
+     *
+     * @param out the destination
+     * @param cents amount in cents
+     * @throws IOException if the output cannot be written
+     */
+    public static void appendUsd(Appendable out, long cents) throws IOException {
+        final long dollars = cents / Constants.PERCENT_FACTOR;
+        if (dollars < 0) {
+            out.append('-');
+        }
+        out.append('$');
+        appendDigits(out, Math.abs(dollars), true);
+        out.append(NO_CENTS);
+    }
+
+    /**
+     * Appends a whole number in plain decimal notation, without grouping.
+     *
+     * @param out the destination
+     * @param value the number
+     * @throws IOException if the output cannot be written
+     */
+    public static void appendInteger(Appendable out, long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.append(Long.toString(value));
+        }
+        else {
+            if (value < 0) {
+                out.append('-');
+            }
+            appendDigits(out, Math.abs(value), false);
+        }
+    }
+
+    private static void appendDigits(Appendable out, long value, boolean grouping) throws IOException {
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            out.append((char) ('0' + value / POWERS_OF_TEN[i] % DECIMAL_RADIX));
+            if (grouping && i > 0 && i % GROUP_SIZE == 0) {
+                out.append(',');
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package theater;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Play catalog that can be replaced while statements are being rendered. Readers take an immutable
+ * {@link Snapshot} with a single volatile read and render from it, so one statement always sees one
+ * catalog version no matter what is published meanwhile. Writers publish a new version with a
+ * compare-and-set; neither side takes a lock. Safe for concurrent use.
+ */
+public final class VersionedPlayCatalog {
+
+    private final AtomicReference<Snapshot> current;
+
+    /**
+     * Creates a catalog whose first version, numbered 1, holds the given plays.
+     *
+     * @param plays a map of play IDs to Play objects; it is copied
+     */
+    public VersionedPlayCatalog(Map<String, Play> plays) {
+        this(PlayCatalog.of(plays));
+    }
+
+    /**
+     * Creates a catalog whose first version, numbered 1, is the given catalog.
+     *
+     * @param catalog the plays
+     */
+    public VersionedPlayCatalog(PlayCatalog catalog) {
+        this.current = new AtomicReference<>(new Snapshot(1, catalog));
+    }
+
+    /**
+     * Returns the current version. Render a whole statement, or a whole batch, from one snapshot.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public long getVersion() {
+        return current.get().getVersion();
+    }
+
+    /**
+     * Replaces the plays, whatever the current version holds.
+     *
+     * @param plays a map of play IDs to Play objects; it is copied
+     * @return the published snapshot
+     */
+    public Snapshot publish(Map<String, Play> plays) {
+        final PlayCatalog catalog = PlayCatalog.of(plays);
+        while (true) {
+            final Snapshot expected = current.get();
+            final Snapshot next = new Snapshot(expected.getVersion() + 1, catalog);
+            if (current.compareAndSet(expected, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Publishes new plays only if the current version is still the expected one.
+     *
+     * @param expected the snapshot the new plays were derived from
+     * @param plays a map of play IDs to Play objects; it is copied
+     * @return the published snapshot, or null if another version was published first
+     */
+    public Snapshot publish(Snapshot expected, Map<String, Play> plays) {
+        final Snapshot next = new Snapshot(expected.getVersion() + 1, PlayCatalog.of(plays));
+        if (current.compareAndSet(expected, next)) {
+            return next;
+        }
+        return null;
+    }
+
+    /**
+     * Derives the plays of a new version from the current ones, retrying if another writer
+     * publishes first. The function may therefore be called more than once and should have no
+     * side effects.
+     *
+     * @param function receives a mutable copy of the current plays and returns the new plays
+     * @return the published snapshot
+     */
+    public Snapshot update(UnaryOperator<Map<String, Play>> function) {
+        while (true) {
+            final Snapshot expected = current.get();
+            final Snapshot next = publish(expected, function.apply(new HashMap<>(expected.asMap())));
+            if (next != null) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Adds plays, or replaces plays with the same IDs, keeping the others.
+     *
+     * @param plays a map of play IDs to Play objects
+     * @return the published snapshot
+     */
+    public Snapshot putAll(Map<String, Play> plays) {
+        return update(existing -> {
+            existing.putAll(plays);
+            return existing;
+        });
+    }
+
+    /**
+     * One immutable version of the catalog.
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final PlayCatalog catalog;
+
+        Snapshot(long version, PlayCatalog catalog) {
+            this.version = version;
+            this.catalog = catalog;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public PlayCatalog getCatalog() {
+            return catalog;
+        }
+
+        /**
+         * Returns the plays of this version as a read-only map, e.g. for {@link StatementPrinter}.
+         *
+         * @return the map view
+         */
+        public Map<String, Play> asMap() {
+            return catalog.asMap();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+
+public class BinaryInvoiceTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Play> plays() throws IOException {
+        try (InputStream input = BinaryInvoiceTests.class.getResourceAsStream("/new_plays.json")) {
+            return InvoiceJsonReader.readPlays(input);
+        }
+    }
+
+    @Test
+    public void invoicesRoundTripAcrossSmallWindows() throws IOException {
+        Map<String, Play> plays = plays();
+        PlayCatalog catalog = PlayCatalog.of(plays);
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays).seed(3).invoices(500).customers(40)
+                .audience(InvoiceGenerator.IntDistribution.uniform(-5, 5000)).build();
+        Path file = folder.newFile("invoices.bin").toPath();
+        try (BinaryInvoiceWriter writer = BinaryInvoiceWriter.create(file, catalog)) {
+            generator.stream().forEach(invoice -> {
+                try {
+                    writer.write(invoice);
+                }
+                catch (IOException exception) {
+                    throw new AssertionError(exception);
+                }
+            });
+        }
+
+        List<String> expected = generator.stream()
+                .map(invoice -> new StatementPrinter(invoice, plays).statement())
+                .collect(Collectors.toList());
+        List<Invoice> invoices = new ArrayList<>();
+        try (BinaryInvoiceReader reader = BinaryInvoiceReader.open(file, 64)) {
+            assertEquals(500, reader.getInvoiceCount());
+            reader.readInvoices(invoices::add);
+            PlayCatalog read = reader.getCatalog();
+            List<String> actual = invoices.stream()
+                    .map(invoice -> new StatementPrinter(invoice, read).statement())
+                    .collect(Collectors.toList());
+            assertEquals(expected, actual);
+            assertSame(read.getPlayID(invoices.get(0).getPerformances().get(0).getPlayIndex()),
+                    invoices.get(0).getPerformances().get(0).getPlayID());
+        }
+    }
+
+    @Test
+    public void jsonDumpConvertsToStatementData() throws IOException {
+        Map<String, Play> plays = plays();
+        PlayCatalog catalog = PlayCatalog.of(plays);
+        Path file = folder.newFile("new_invoices.bin").toPath();
+        try (InputStream input = getClass().getResourceAsStream("/new_invoices.json")) {
+            assertEquals(1, BinaryInvoiceWriter.convert(input, catalog, file));
+        }
+        List<StatementData> statements = new ArrayList<>();
+        try (BinaryInvoiceReader reader = BinaryInvoiceReader.open(file)) {
+            reader.readStatements(statements::add);
+        }
+        List<StatementData> fromJson = new ArrayList<>();
+        try (InputStream input = getClass().getResourceAsStream("/new_invoices.json")) {
+            InvoiceJsonReader.readStatements(input, plays, fromJson::add);
+        }
+        assertEquals(fromJson.get(0).totalAmount(), statements.get(0).totalAmount());
+        assertEquals(fromJson.get(0).volumeCredits(), statements.get(0).volumeCredits());
+        assertEquals(fromJson.get(0).size(), statements.get(0).size());
+    }
+
+    @Test
+    public void unfinishedFileIsRejected() throws IOException {
+        Path file = folder.newFile("unfinished.bin").toPath();
+        try (BinaryInvoiceWriter writer = BinaryInvoiceWriter.create(file, PlayCatalog.of(plays()))) {
+            writer.write(new Invoice("BigCo", List.of(new Performance("henry-v", 55))));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try (BinaryInvoiceReader reader = BinaryInvoiceReader.open(file)) {
+            fail("expected a truncated file to be rejected");
+        }
+        catch (IOException expected) {
+            // the customer table is cut short
+        }
+    }
+
+    @Test
+    public void rejectedInvoiceLeavesNoTornRecord() throws IOException {
+        Path file = folder.newFile("rejected.bin").toPath();
+        try (BinaryInvoiceWriter writer = BinaryInvoiceWriter.create(file, PlayCatalog.of(plays()))) {
+            writer.write(new Invoice("BigCo", List.of(new Performance("henry-v", 10))));
+            try {
+                writer.write(new Invoice("SmallCo", List.of(new Performance("henry-v", 20),
+                        new Performance("macbeth", 30))));
+                fail("expected an unknown play to be rejected");
+            }
+            catch (UnknownPlayException expected) {
+                assertEquals("unknown play: macbeth", expected.getMessage());
+            }
+            writer.write(new Invoice("BigCo", List.of(new Performance("as-like", 40))));
+        }
+        List<Invoice> invoices = new ArrayList<>();
+        try (BinaryInvoiceReader reader = BinaryInvoiceReader.open(file)) {
+            reader.readInvoices(invoices::add);
+        }
+        assertEquals(2, invoices.size());
+        assertEquals(40, invoices.get(1).getPerformances().get(0).getAudience());
+    }
+
+    @Test
+    public void failedConversionDeletesTheFile() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("failed.bin");
+        String json = "[{\"customer\": \"BigCo\", \"performances\": [{\"playID\": \"henry-v\", \"audience\": 10},"
+                + " {\"playID\": \"macbeth\", \"audience\": 20}]}]";
+        try {
+            BinaryInvoiceWriter.convert(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                    PlayCatalog.of(plays()), file);
+            fail("expected an unknown play to be rejected");
+        }
+        catch (RuntimeException expected) {
+            assertFalse(Files.exists(file));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package theater;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class CheckpointedBatchRunnerTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, Play> plays;
+    private Path playsFile;
+    private Path invoicesFile;
+    private InvoiceGenerator generator;
+
+    @Before
+    public void writeInput() throws IOException {
+        playsFile = folder.getRoot().toPath().resolve("plays.json");
+        try (InputStream input = getClass().getResourceAsStream("/plays.json")) {
+            Files.copy(input, playsFile);
+        }
+        try (InputStream input = Files.newInputStream(playsFile)) {
+            plays = InvoiceJsonReader.readPlays(input);
+        }
+        generator = InvoiceGenerator.builder(plays).seed(9).invoices(300).customers(40).build();
+        StringBuilder json = new StringBuilder("[");
+        for (long i = 0; i < generator.getInvoiceCount(); i++) {
+            Invoice invoice = generator.invoice(i);
+            json.append(i == 0 ? "" : ",").append("{\"customer\": \"").append(invoice.getCustomer())
+                    .append("\", \"performances\": [");
+            for (int j = 0; j < invoice.getPerformances().size(); j++) {
+                Performance performance = invoice.getPerformances().get(j);
+                json.append(j == 0 ? "" : ",").append("{\"playID\": \"").append(performance.getPlayID())
+                        .append("\", \"audience\": ").append(performance.getAudience()).append("}");
+            }
+            json.append("]}");
+        }
+        invoicesFile = folder.getRoot().toPath().resolve("invoices.json");
+        Files.write(invoicesFile, json.append("]").toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String expected(boolean html) {
+        StringBuilder result = new StringBuilder();
+        for (long i = 0; i < generator.getInvoiceCount(); i++) {
+            Invoice invoice = generator.invoice(i);
+            if (html) {
+                result.append(new HTMLStatementPrinter(invoice, plays).statement());
+            }
+            else {
+                result.append(new StatementPrinter(invoice, plays).statement());
+            }
+        }
+        return result.toString();
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void restartedRunSkipsFinishedShardsAndProducesTheSameOutput() throws IOException {
+        Path work = folder.getRoot().toPath().resolve("work");
+        Path output = folder.getRoot().toPath().resolve("statements.txt");
+        CheckpointedBatchRunner runner = CheckpointedBatchRunner.builder(playsFile, invoicesFile, work)
+                .shards(4).parallelism(2).build();
+
+        CheckpointedBatchRunner.Result first = runner.run(output);
+        assertEquals(4, first.getRenderedShards());
+        assertEquals(generator.getInvoiceCount(), first.getStatementCount());
+        assertEquals(expected(false), read(output));
+
+        // simulate a run that died while rendering shard 1
+        Files.delete(work.resolve("shard-00001.done"));
+        Files.write(work.resolve("shard-00001.part"), new byte[] {1, 2, 3});
+        CheckpointedBatchRunner.Result second = runner.run(output);
+        assertEquals(1, second.getRenderedShards());
+        assertEquals(3, second.getSkippedShards());
+        assertEquals(expected(false), read(output));
+
+        assertEquals(0, runner.run(output).getRenderedShards());
+        assertEquals(expected(false), read(output));
+        assertTrue(Files.exists(work.resolve("split.done")));
+        for (int shard = 0; shard < 4; shard++) {
+            assertTrue(Files.exists(work.resolve(String.format("shard-%05d.in", shard))));
+        }
+
+        // a shard reads only its own split input, not the original file
+        Files.delete(work.resolve("shard-00001.done"));
+        Files.delete(invoicesFile);
+        assertEquals(first.getStatementCount(), runner.runShard(0) + runner.runShard(1) + runner.runShard(2)
+                + runner.runShard(3));
+    }
+
+    @Test
+    public void workDirectoryOfAnotherRunIsRejected() throws IOException {
+        Path work = folder.getRoot().toPath().resolve("work");
+        Path output = folder.getRoot().toPath().resolve("statements.txt");
+        CheckpointedBatchRunner.builder(playsFile, invoicesFile, work).shards(2).build().run(output);
+        try {
+            CheckpointedBatchRunner.builder(playsFile, invoicesFile, work).shards(3).build().run(output);
+            fail("expected a work directory with other settings to be rejected");
+        }
+        catch (IOException expected) {
+            assertEquals(String.format("work directory %s belongs to a different run", work), expected.getMessage());
+        }
+    }
+
+    @Test
+    public void editedPlaysAreRejected() throws IOException {
+        Path work = folder.getRoot().toPath().resolve("work");
+        Path output = folder.getRoot().toPath().resolve("statements.txt");
+        CheckpointedBatchRunner runner = CheckpointedBatchRunner.builder(playsFile, invoicesFile, work)
+                .shards(2).build();
+        runner.run(output);
+        Files.write(playsFile, read(playsFile).replace("Hamlet", "Hamlet, Prince of Denmark")
+                .getBytes(StandardCharsets.UTF_8));
+        try {
+            runner.run(output);
+            fail("expected a work directory rendered from other plays to be rejected");
+        }
+        catch (IOException expected) {
+            assertEquals(String.format("work directory %s belongs to a different run", work), expected.getMessage());
+        }
+    }
+
+    @Test
+    public void shardsCanRunInChildProcesses() throws IOException {
+        Path work = folder.getRoot().toPath().resolve("work");
+        Path output = folder.getRoot().toPath().resolve("statements.html");
+        CheckpointedBatchRunner.Result result = CheckpointedBatchRunner.builder(playsFile, invoicesFile, work)
+                .shards(2).parallelism(2).format("html").processes(true).build().run(output);
+
+        assertEquals(2, result.getRenderedShards());
+        assertEquals(expected(true), read(output));
+    }
+
+    @Test
+    public void childProcessesInheritPricingProperties() throws IOException {
+        Path pricing = folder.getRoot().toPath().resolve("pricing.properties");
+        Files.write(pricing, "tragedy.baseAmount=1\n".getBytes(StandardCharsets.UTF_8));
+        Path work = folder.getRoot().toPath().resolve("work");
+        Path output = folder.getRoot().toPath().resolve("statements.txt");
+        PricingRegistry registry;
+        System.setProperty(PricingTable.PRICING_FILE_PROPERTY, pricing.toString());
+        try {
+            registry = PricingTable.loadDefault().toRegistry();
+            CheckpointedBatchRunner.builder(playsFile, invoicesFile, work).shards(2).processes(true).build()
+                    .run(output);
+        }
+        finally {
+            System.clearProperty(PricingTable.PRICING_FILE_PROPERTY);
+        }
+
+        StringBuilder expected = new StringBuilder();
+        for (long i = 0; i < generator.getInvoiceCount(); i++) {
+            StatementTemplate.PLAIN_TEXT.render(new StatementData(generator.invoice(i), plays, registry), expected);
+        }
+        assertEquals(expected.toString(), read(output));
+    }
+}
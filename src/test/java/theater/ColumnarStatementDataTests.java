@@ -0,0 +1,45 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class ColumnarStatementDataTests {
+
+    @Test
+    public void columnarDataMatchesStatementData() throws IOException {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            performances.add(new Performance("hamlet", i % 70));
+            performances.add(new Performance("as-like", i % 45));
+            performances.add(new Performance("henry-v", i % 90));
+        }
+        Invoice invoice = new Invoice("BigCo", performances);
+
+        StatementData expected = new StatementData(invoice, plays);
+        ColumnarStatementData actual = new ColumnarStatementData(invoice, plays);
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.totalAmount(), actual.totalAmount());
+        assertEquals(expected.volumeCredits(), actual.volumeCredits());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getName(i), actual.getName(i));
+            assertEquals(expected.getType(i), actual.getType(i));
+            assertEquals(expected.getAmount(i), actual.getAmount(i));
+            assertEquals(expected.getVolumeCredits(i), actual.getVolumeCredits(i));
+        }
+
+        StatementPrinter printer = new HTMLStatementPrinter(invoice, plays);
+        StringBuilder rendered = new StringBuilder();
+        printer.render(actual, rendered);
+        assertEquals(printer.statement(), rendered.toString());
+    }
+}
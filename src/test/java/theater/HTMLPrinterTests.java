@@ -1,5 +1,9 @@
 package theater;
 
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
 import java.io.IOException;
 import java.util.*;
 
@@ -22,44 +26,43 @@ public class HTMLPrinterTests {
         return "";
     }
 
-    // uncomment the test below if you write the HTMLStatementPrinter class in the optional task
-//    @Test
-//    public void exampleHTMLStatementTest() {
-//
-//        String expected = loadString("HTMLStatementExample.html");
-//
-//        JSONObject a = new JSONObject(loadString("plays.json"));
-//
-//        Map<String, Play> plays = new HashMap<>();
-//
-//        for (String s : a.keySet()) {
-//            JSONObject play = (JSONObject) a.get(s);
-//            plays.put(s, new Play(play.getString("name"), play.getString("type")));
-//        }
-//
-//        JSONArray ja = new JSONArray(loadString("invoices.json"));
-//
-//        for (Object jo : ja) {
-//            JSONObject jinvoice = (JSONObject) jo;
-//            String customer = jinvoice.getString("customer");
-//            JSONArray jperformances = jinvoice.getJSONArray("performances");
-//            List<Performance> performances = new ArrayList<>();
-//            for (Object s : jperformances) {
-//                JSONObject performance = (JSONObject) s;
-//                performances.add(new Performance(performance.getString("playID"),
-//                        performance.getInt("audience")));
-//            }
-//
-//            Invoice invoice = new Invoice(customer, performances);
-//
-//            StatementPrinter statementPrinter = new HTMLStatementPrinter(invoice, plays);
-//            String result = statementPrinter.statement();
-//            // ensure consistent line endings are being used
-//            result = result.replace("\r\n", "\n");
-//            expected = expected.replace("\r\n", "\n");
-//
-//            assertEquals(String.format("Actual output:%n%s%nExpected:%s", result, expected), expected, result);
-//        }
-//
-//    }
+    @Test
+    public void exampleHTMLStatementTest() {
+
+        String expected = loadString("HTMLStatementExample.html");
+
+        JSONObject a = new JSONObject(loadString("plays.json"));
+
+        Map<String, Play> plays = new HashMap<>();
+
+        for (String s : a.keySet()) {
+            JSONObject play = (JSONObject) a.get(s);
+            plays.put(s, new Play(play.getString("name"), play.getString("type")));
+        }
+
+        JSONArray ja = new JSONArray(loadString("invoices.json"));
+
+        for (Object jo : ja) {
+            JSONObject jinvoice = (JSONObject) jo;
+            String customer = jinvoice.getString("customer");
+            JSONArray jperformances = jinvoice.getJSONArray("performances");
+            List<Performance> performances = new ArrayList<>();
+            for (Object s : jperformances) {
+                JSONObject performance = (JSONObject) s;
+                performances.add(new Performance(performance.getString("playID"),
+                        performance.getInt("audience")));
+            }
+
+            Invoice invoice = new Invoice(customer, performances);
+
+            StatementPrinter statementPrinter = new HTMLStatementPrinter(invoice, plays);
+            String result = statementPrinter.statement();
+            // ensure consistent line endings are being used
+            result = result.replace("\r\n", "\n");
+            expected = expected.replace("\r\n", "\n");
+
+            assertEquals(String.format("Actual output:%n%s%nExpected:%s", result, expected), expected, result);
+        }
+
+    }
 }
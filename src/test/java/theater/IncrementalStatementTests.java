@@ -0,0 +1,52 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class IncrementalStatementTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        return plays;
+    }
+
+    @Test
+    public void deltasMatchFullRecomputation() {
+        Map<String, Play> plays = plays();
+        IncrementalStatement statement = new IncrementalStatement("BigCo", plays);
+        IncrementalStatement.Line hamlet = statement.add(new Performance("hamlet", 55));
+        IncrementalStatement.Line extra = statement.add(new Performance("othello", 10));
+        IncrementalStatement.Line asLike = statement.add(new Performance("as-like", 20));
+        statement.add(new Performance("othello", 40));
+
+        statement.remove(extra);
+        statement.changeAudience(asLike, 35);
+
+        Invoice expected = new Invoice("BigCo", List.of(new Performance("hamlet", 55),
+                new Performance("as-like", 35), new Performance("othello", 40)));
+        StatementPrinter printer = new StatementPrinter(expected, plays);
+        StatementData data = new StatementData(expected, plays);
+
+        assertEquals(data.totalAmount(), statement.totalAmount());
+        assertEquals(data.volumeCredits(), statement.volumeCredits());
+        assertEquals(3, statement.size());
+        assertEquals(65000, hamlet.getAmount());
+        assertEquals(printer.statement(), new StatementPrinter(statement.toInvoice(), plays).statement());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removedLineCannotChange() {
+        IncrementalStatement statement = IncrementalStatement.of(
+                new Invoice("BigCo", List.of(new Performance("hamlet", 55))), plays());
+        IncrementalStatement.Line line = statement.getLine(0);
+        statement.remove(line);
+        statement.changeAudience(line, 10);
+    }
+}
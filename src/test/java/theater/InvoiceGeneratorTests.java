@@ -0,0 +1,80 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class InvoiceGeneratorTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        return plays;
+    }
+
+    @Test
+    public void sameSeedGivesSameInvoices() {
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays()).seed(42).invoices(200).build();
+        InvoiceGenerator again = InvoiceGenerator.builder(plays()).seed(42).invoices(200).build();
+        List<String> sequential = generator.stream()
+                .map(invoice -> new StatementPrinter(invoice, plays()).statement())
+                .collect(Collectors.toList());
+        List<String> parallel = again.stream().parallel()
+                .map(invoice -> new StatementPrinter(invoice, plays()).statement())
+                .collect(Collectors.toList());
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.get(137), new StatementPrinter(generator.invoice(137), plays()).statement());
+    }
+
+    @Test
+    public void invoicesFollowConfiguration() {
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays())
+                .seed(7)
+                .invoices(500)
+                .customers(3)
+                .genreWeight("tragedy", 0)
+                .performancesPerInvoice(InvoiceGenerator.IntDistribution.uniform(2, 4))
+                .audience(InvoiceGenerator.IntDistribution.geometric(30, 5, 60))
+                .build();
+        generator.stream().forEach(invoice -> {
+            assertTrue(invoice.getCustomer().matches("Customer-00000[0-2]"));
+            assertTrue(invoice.getPerformances().size() >= 2 && invoice.getPerformances().size() <= 4);
+            for (Performance performance : invoice.getPerformances()) {
+                assertTrue(!"hamlet".equals(performance.getPlayID()));
+                assertTrue(performance.getAudience() >= 5 && performance.getAudience() <= 60);
+            }
+        });
+    }
+
+    @Test
+    public void histogramReportsPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+        assertEquals(5000, histogram.getPercentile(50), 5000 * 0.04);
+        assertEquals(9900, histogram.getPercentile(99), 9900 * 0.04);
+        assertEquals(10000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void loadTestRendersEveryInvoice() {
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays()).seed(1).invoices(300).build();
+        LoadTestDriver.Report report = LoadTestDriver.run(generator, plays(), HTMLStatementPrinter::new, 3);
+        assertEquals(300, report.getCount());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatencies().getPercentile(99) <= report.getLatencies().getMax());
+    }
+}
@@ -0,0 +1,87 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+
+public class InvoiceJsonReaderTests {
+
+    private static InputStream open(String path) {
+        return Objects.requireNonNull(InvoiceJsonReaderTests.class.getClassLoader().getResourceAsStream(path));
+    }
+
+    private static String loadString(String path) {
+        try (InputStream input = open(path)) {
+            return new String(input.readAllBytes());
+        }
+        catch (IOException exception) {
+            fail("resource file could not be loaded prior to test executing");
+        }
+        return "";
+    }
+
+    @Test
+    public void streamedInvoicesProduceExampleStatement() throws IOException {
+        String expected = loadString("ExampleStatement.txt").replace("\r\n", "\n");
+        Map<String, Play> plays;
+        try (InputStream input = open("plays.json")) {
+            plays = InvoiceJsonReader.readPlays(input);
+        }
+
+        List<String> results = new ArrayList<>();
+        try (InputStream input = open("invoices.json")) {
+            InvoiceJsonReader.readInvoices(Channels.newChannel(input),
+                    invoice -> results.add(new StatementPrinter(invoice, plays).statement()));
+        }
+
+        assertEquals(1, results.size());
+        assertEquals(expected, results.get(0).replace("\r\n", "\n"));
+    }
+
+    @Test
+    public void statementDataIsComputedPerInvoice() throws IOException {
+        Map<String, Play> plays;
+        try (InputStream input = open("new_plays.json")) {
+            plays = InvoiceJsonReader.readPlays(input);
+        }
+
+        List<StatementData> results = new ArrayList<>();
+        try (InputStream input = open("new_invoices.json")) {
+            InvoiceJsonReader.readStatements(input, plays, results::add);
+        }
+
+        assertEquals(1, results.size());
+        assertEquals("BigCoII", results.get(0).getCustomer());
+        assertEquals(180500, results.get(0).totalAmount());
+        assertEquals(95, results.get(0).volumeCredits());
+    }
+
+    @Test
+    public void singleInvoiceWithEscapesAndUnknownFields() throws IOException {
+        String json = "{\"id\": [1, {\"x\": null}], \"customer\": \"Big\\u0043o \\\"II\\\"\","
+                + " \"performances\": [{\"playID\": \"hamlet\", \"audience\": 55, \"note\": true}]}";
+        List<Invoice> invoices = new ArrayList<>();
+        InvoiceJsonReader.readInvoices(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                invoices::add);
+
+        assertEquals(1, invoices.size());
+        assertEquals("BigCo \"II\"", invoices.get(0).getCustomer());
+        assertEquals("hamlet", invoices.get(0).getPerformances().get(0).getPlayID());
+        assertEquals(55, invoices.get(0).getPerformances().get(0).getAudience());
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedInputIsRejected() throws IOException {
+        InvoiceJsonReader.readInvoices(new StringReader("[{\"customer\" \"BigCo\"}]"), invoice -> { });
+    }
+}
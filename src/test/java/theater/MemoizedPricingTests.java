@@ -0,0 +1,38 @@
+package theater;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class MemoizedPricingTests {
+
+    @Test
+    public void memoizedValuesMatchDirectComputation() {
+        PricingTable table = PricingTable.loadDefault();
+        for (String type : table.getTypes()) {
+            PricingStrategy direct = table.strategy(type);
+            MemoizedPricing memoized = new MemoizedPricing(direct, 100);
+            for (int audience = -5; audience <= 300; audience++) {
+                assertEquals(direct.amountFor(audience), memoized.amountFor(audience));
+                assertEquals(direct.volumeCredits(audience), memoized.volumeCredits(audience));
+            }
+        }
+    }
+
+    @Test
+    public void registryCanBeMemoizedWithCustomRange() {
+        PricingRegistry registry = PricingRegistry.getDefault().memoized(50);
+        PricingStrategy comedy = registry.forType("comedy");
+        assertTrue(comedy instanceof MemoizedPricing);
+        assertEquals(50, ((MemoizedPricing) comedy).getMaxAudience());
+        assertEquals(58000, comedy.amountFor(35));
+        assertEquals(StandardPricing.COMEDY.amountFor(5000), comedy.amountFor(5000));
+        // the standard types are memoized once, not wrapped around their own tables
+        PricingStrategy delegate = ((MemoizedPricing) comedy).getDelegate();
+        assertFalse(delegate instanceof StandardPricing);
+        assertFalse(delegate instanceof MemoizedPricing);
+    }
+}
@@ -0,0 +1,129 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+
+public class PerformanceLedgerTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        return plays;
+    }
+
+    private static InvoiceGenerator generator() {
+        return InvoiceGenerator.builder(plays()).seed(5).invoices(500).customers(30)
+                .performancesPerInvoice(InvoiceGenerator.IntDistribution.uniform(0, 9)).build();
+    }
+
+    private static void assertMatchesGenerator(PerformanceLedger ledger) throws IOException {
+        InvoiceGenerator generator = generator();
+        PlayCatalog catalog = ledger.getCatalog();
+        for (long i = 0; i < generator.getInvoiceCount(); i++) {
+            assertEquals(i, ledger.append(generator.invoice(i)));
+        }
+        assertEquals(generator.getInvoiceCount(), ledger.getInvoiceCount());
+
+        List<long[]> totals = new ArrayList<>();
+        ledger.price((invoice, customer, amount, credits) -> {
+            assertEquals(generator.invoice(invoice).getCustomer(), customer);
+            totals.add(new long[] {amount, credits});
+        });
+        long performances = 0;
+        List<Long> expectedInvoices = new ArrayList<>();
+        List<Performance> expectedPerformances = new ArrayList<>();
+        for (long i = 0; i < generator.getInvoiceCount(); i++) {
+            Invoice invoice = generator.invoice(i);
+            for (Performance performance : invoice.getPerformances()) {
+                expectedInvoices.add(i);
+                expectedPerformances.add(performance);
+            }
+            StatementData expected = new StatementData(invoice, plays());
+            assertEquals(expected.totalAmount(), totals.get((int) i)[0]);
+            assertEquals(expected.volumeCredits(), totals.get((int) i)[1]);
+            assertEquals(new StatementPrinter(invoice, plays()).statement(),
+                    new StatementPrinter(ledger.getInvoice(i), catalog).statement());
+            performances += invoice.getPerformances().size();
+        }
+        assertEquals(performances, ledger.getPerformanceCount());
+
+        int[] visited = new int[1];
+        ledger.forEachPerformance((invoice, playIndex, audience) -> {
+            int row = visited[0]++;
+            Performance expected = expectedPerformances.get(row);
+            assertEquals(expectedInvoices.get(row).longValue(), invoice);
+            assertEquals(expected.getPlayID(), catalog.getPlayID(playIndex));
+            assertEquals(expected.getAudience(), audience);
+        });
+        assertEquals(performances, visited[0]);
+    }
+
+    @Test
+    public void directSegmentsRoundTripAndPrice() throws IOException {
+        try (PerformanceLedger ledger = PerformanceLedger.allocate(PlayCatalog.of(plays()), 64)) {
+            assertMatchesGenerator(ledger);
+        }
+    }
+
+    @Test
+    public void mappedSegmentsRoundTripAndPrice() throws IOException {
+        try (PerformanceLedger ledger = PerformanceLedger.map(PlayCatalog.of(plays()),
+                folder.getRoot().toPath().resolve("ledger.bin"), 32)) {
+            assertMatchesGenerator(ledger);
+        }
+    }
+
+    @Test
+    public void rejectsUnknownPlaysWithoutAppending() throws IOException {
+        try (PerformanceLedger ledger = PerformanceLedger.allocate(PlayCatalog.of(plays()), 4)) {
+            try {
+                ledger.append(new Invoice("BigCo", List.of(new Performance("hamlet", 10),
+                        new Performance("macbeth", 10))));
+                fail("expected an unknown play to be rejected");
+            }
+            catch (UnknownPlayException expected) {
+                assertEquals("unknown play: macbeth", expected.getMessage());
+            }
+            assertEquals(0, ledger.getInvoiceCount());
+            assertEquals(0, ledger.getPerformanceCount());
+        }
+    }
+
+    @Test
+    public void failedMappingLeavesNoOrphanRows() throws IOException {
+        PerformanceLedger ledger = PerformanceLedger.map(PlayCatalog.of(plays()),
+                folder.getRoot().toPath().resolve("failing.bin"), 4);
+        ledger.append(new Invoice("BigCo", List.of(new Performance("hamlet", 10))));
+        // a closed channel cannot map the segments the next invoice needs
+        ledger.close();
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            performances.add(new Performance("hamlet", i));
+        }
+        try {
+            ledger.append(new Invoice("BigCo", performances));
+            fail("expected the mapping to fail");
+        }
+        catch (IOException expected) {
+            // the invoice is not appended
+        }
+        assertEquals(1, ledger.getInvoiceCount());
+        assertEquals(1, ledger.getPerformanceCount());
+    }
+}
@@ -0,0 +1,61 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class PlayCatalogTests {
+
+    private static InputStream open(String path) {
+        return Objects.requireNonNull(PlayCatalogTests.class.getClassLoader().getResourceAsStream(path));
+    }
+
+    @Test
+    public void catalogPrintersMatchMapPrinters() throws IOException {
+        Map<String, Play> plays;
+        try (InputStream input = open("plays.json")) {
+            plays = InvoiceJsonReader.readPlays(input);
+        }
+        PlayCatalog catalog = PlayCatalog.of(plays);
+        List<Invoice> invoices = new ArrayList<>();
+        try (InputStream input = open("invoices.json")) {
+            InvoiceJsonReader.readInvoices(input, catalog, invoices::add);
+        }
+
+        Invoice invoice = invoices.get(0);
+        for (Performance performance : invoice.getPerformances()) {
+            assertTrue(performance.getPlayIndex() >= 0);
+            assertSame(catalog.getPlayID(performance.getPlayIndex()), performance.getPlayID());
+        }
+        assertEquals(new StatementPrinter(invoice, plays).statement(),
+                new StatementPrinter(invoice, catalog).statement());
+        assertEquals(new HTMLStatementPrinter(invoice, plays).statement(),
+                new HTMLStatementPrinter(invoice, catalog).statement());
+    }
+
+    @Test
+    public void mapViewAndUnresolvedPerformances() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        PlayCatalog catalog = PlayCatalog.of(plays);
+
+        assertEquals(plays, catalog.asMap());
+        assertEquals(0, catalog.indexOf("hamlet"));
+        assertEquals(Performance.NO_PLAY_INDEX, catalog.indexOf("lear"));
+        assertSame(plays.get("othello"), catalog.getPlay(new Performance("othello", 10)));
+    }
+
+    @Test(expected = UnknownPlayException.class)
+    public void unknownPlayIsRejected() {
+        PlayCatalog catalog = PlayCatalog.of(Map.of("hamlet", new Play("Hamlet", "tragedy")));
+        new StatementData(new Invoice("BigCo", List.of(new Performance("lear", 10))), catalog);
+    }
+}
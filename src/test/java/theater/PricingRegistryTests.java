@@ -0,0 +1,92 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class PricingRegistryTests {
+
+    /**
+     * Registered for tests through META-INF/services/theater.PricingStrategy.
+     */
+    public static class MusicalPricing implements PricingStrategy {
+
+        @Override
+        public String getType() {
+            return "musical";
+        }
+
+        @Override
+        public int amountFor(int audience) {
+            return 10000 + 100 * audience;
+        }
+
+        @Override
+        public int volumeCredits(int audience) {
+            return audience / 10;
+        }
+    }
+
+    @Test
+    public void standardTypesResolveToSharedStrategies() {
+        PricingRegistry registry = PricingRegistry.getDefault();
+        assertSame(StandardPricing.TRAGEDY, registry.forPlay(new Play("Hamlet", "tragedy")));
+        assertSame(StandardPricing.PASTORAL, registry.forType("pastoral"));
+    }
+
+    @Test
+    public void serviceLoaderContributesNewTypes() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("cats", new Play("Cats", "musical"));
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("cats", 40)));
+
+        String statement = new StatementPrinter(invoice, plays).statement();
+
+        assertTrue(statement, statement.contains("Cats: $140.00 (40 seats)"));
+        assertTrue(statement, statement.contains("You earned 4 credits"));
+        AbstractPerformanceCalculator calculator = AbstractPerformanceCalculator.createPerformanceCalculator(
+                invoice.getPerformances().get(0), plays.get("cats"));
+        assertEquals(14000, calculator.amountFor());
+    }
+
+    @Test
+    public void calculatorsMatchStrategies() {
+        Play play = new Play("As You Like It", "comedy");
+        Performance performance = new Performance("as-like", 35);
+        AbstractPerformanceCalculator calculator =
+                AbstractPerformanceCalculator.createPerformanceCalculator(performance, play);
+        assertTrue(calculator instanceof ComedyCalculator);
+        assertEquals(58000, calculator.amountFor());
+        assertEquals(12, calculator.volumeCredits());
+    }
+
+    @Test
+    public void catalogResolvesStrategiesPerRegistry() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("cats", new Play("Cats", "comedy"));
+        PlayCatalog catalog = PlayCatalog.of(plays);
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("cats", 40), new Performance("cats", 20)));
+        PricingRegistry musicals = PricingRegistry.of(List.of(new MusicalPricing() {
+            @Override
+            public String getType() {
+                return "comedy";
+            }
+        }));
+
+        assertEquals(new StatementData(invoice, plays).totalAmount(),
+                new StatementData(invoice, catalog).totalAmount());
+        assertEquals(14000 + 12000, new StatementData(invoice, catalog, musicals).totalAmount());
+        assertEquals(new StatementData(invoice, plays).totalAmount(),
+                new StatementData(invoice, catalog).totalAmount());
+    }
+
+    @Test(expected = UnknownPlayTypeException.class)
+    public void unknownTypeIsRejected() {
+        AbstractPerformanceCalculator.createPerformanceCalculator(new Performance("x", 10), new Play("X", "opera"));
+    }
+}
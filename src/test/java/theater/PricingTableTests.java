@@ -0,0 +1,126 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class PricingTableTests {
+
+    /**
+     * The prices of the original hard-coded calculators, which the bundled table must reproduce.
+     */
+    private static int expectedAmount(String type, int audience) {
+        switch (type) {
+            case Constants.TYPE_TRAGEDY:
+                return 40000 + 1000 * Math.max(audience - 30, 0);
+            case Constants.TYPE_COMEDY:
+                return 30000 + 300 * audience + (audience > 20 ? 10000 + 500 * (audience - 20) : 0);
+            case Constants.TYPE_HISTORY:
+                return 20000 + 1000 * Math.max(audience - 20, 0);
+            default:
+                return 40000 + 2500 * Math.max(audience - 20, 0);
+        }
+    }
+
+    private static int expectedCredits(String type, int audience) {
+        switch (type) {
+            case Constants.TYPE_TRAGEDY:
+                return Math.max(audience - 30, 0);
+            case Constants.TYPE_COMEDY:
+                return Math.max(audience - 30, 0) + audience / 5;
+            case Constants.TYPE_HISTORY:
+                return Math.max(audience - 20, 0);
+            default:
+                return Math.max(audience - 20, 0) + audience / 2;
+        }
+    }
+
+    @Test
+    public void defaultTableMatchesOriginalPrices() {
+        PricingTable table = PricingTable.loadDefault();
+        for (String type : new String[] {"tragedy", "comedy", "history", "pastoral"}) {
+            int index = table.typeIndex(type);
+            for (int audience = 0; audience <= 500; audience++) {
+                assertEquals(type + " " + audience, expectedAmount(type, audience), table.amountFor(index, audience));
+                assertEquals(type + " " + audience, expectedCredits(type, audience),
+                        table.volumeCredits(index, audience));
+            }
+        }
+    }
+
+    @Test
+    public void rulesAreLoadedFromProperties() throws IOException {
+        String rules = "musical.baseAmount=10000\nmusical.audienceThreshold=50\n"
+                + "musical.overThresholdAmount=5000\nmusical.overThresholdPerPerson=100\n"
+                + "musical.extraCreditFactor=10\n";
+        PricingTable table = PricingTable.load(new ByteArrayInputStream(rules.getBytes(StandardCharsets.UTF_8)));
+        PricingStrategy musical = table.toRegistry().forType("musical");
+
+        assertEquals(10000, musical.amountFor(50));
+        assertEquals(10000 + 5000 + 100, musical.amountFor(51));
+        assertEquals(51 + 5, musical.volumeCredits(51));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownParameterIsRejected() throws IOException {
+        PricingTable.load(new ByteArrayInputStream("musical.discount=5".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeValueIsRejected() throws IOException {
+        PricingTable.load(new ByteArrayInputStream("musical.baseAmount=-1".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void explicitZeroMatchesALeftOutParameter() throws IOException {
+        String rules = "musical.baseAmount=100\nmusical.overThresholdPerPerson=10\nmusical.creditThreshold=5\n";
+        String zeros = rules + "musical.audienceThreshold=0\nmusical.extraCreditFactor=0\n";
+        PricingStrategy leftOut = PricingTable.load(new ByteArrayInputStream(rules.getBytes(StandardCharsets.UTF_8)))
+                .toRegistry().forType("musical");
+        PricingStrategy explicit = PricingTable.load(new ByteArrayInputStream(zeros.getBytes(StandardCharsets.UTF_8)))
+                .toRegistry().forType("musical");
+        for (int audience = 0; audience < 20; audience++) {
+            assertEquals(leftOut.amountFor(audience), explicit.amountFor(audience));
+            assertEquals(leftOut.volumeCredits(audience), explicit.volumeCredits(audience));
+        }
+        assertEquals(100 + 10 * 7, explicit.amountFor(7));
+        assertEquals(2, explicit.volumeCredits(7));
+    }
+
+    @Test
+    public void pricingFileOverridesOnlyTheParametersItNames() throws IOException {
+        Path file = Files.createTempFile("pricing", ".properties");
+        String previous = System.getProperty(PricingTable.PRICING_FILE_PROPERTY);
+        try {
+            Files.write(file, "comedy.baseAmount=1\n".getBytes(StandardCharsets.UTF_8));
+            System.setProperty(PricingTable.PRICING_FILE_PROPERTY, file.toString());
+            PricingTable table = PricingTable.loadDefault();
+
+            int comedy = table.typeIndex("comedy");
+            assertEquals(1, table.amountFor(comedy, 0));
+            for (int audience = 0; audience <= 100; audience++) {
+                int baseAmount = expectedAmount("comedy", 0);
+                assertEquals(expectedAmount("comedy", audience) - baseAmount + 1, table.amountFor(comedy, audience));
+                assertEquals(expectedCredits("comedy", audience), table.volumeCredits(comedy, audience));
+            }
+            assertEquals(expectedAmount("tragedy", 40), table.amountFor(table.typeIndex("tragedy"), 40));
+            assertEquals(expectedAmount("pastoral", 40), table.amountFor(table.typeIndex("pastoral"), 40));
+        }
+        finally {
+            if (previous == null) {
+                System.clearProperty(PricingTable.PRICING_FILE_PROPERTY);
+            }
+            else {
+                System.setProperty(PricingTable.PRICING_FILE_PROPERTY, previous);
+            }
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class RevenueAnalyticsTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        return plays;
+    }
+
+    @Test
+    public void totalsMatchStatementData() {
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55),
+                new Performance("as-like", 35), new Performance("othello", 40)));
+        RevenueReport report = new RevenueAnalytics(PlayCatalog.of(plays())).analyze(List.of(invoice));
+        StatementData data = new StatementData(invoice, plays());
+
+        assertEquals(data.totalAmount(), report.getTotal().getAmount());
+        assertEquals(data.volumeCredits(), report.getTotal().getVolumeCredits());
+        assertEquals(3, report.getByCustomer().get("BigCo").getPerformances());
+        assertEquals(65000 + 50000, report.getByGenre().get("tragedy").getAmount());
+        assertEquals(58000, report.getByPlay().get("as-like").getAmount());
+        assertEquals(2, report.getByAudienceBand().get("30-49").getPerformances());
+        assertEquals(1, report.getByAudienceBand().get("50-99").getPerformances());
+    }
+
+    @Test
+    public void parallelReductionMatchesSequentialAndDoesNotOverflow() {
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays()).seed(11).invoices(20000).customers(50)
+                .audience(InvoiceGenerator.IntDistribution.uniform(0, 100000)).build();
+        RevenueAnalytics analytics = new RevenueAnalytics(PlayCatalog.of(plays()));
+        RevenueReport sequential = analytics.analyze(generator.stream());
+        RevenueReport parallel = analytics.analyze(generator.stream().parallel());
+
+        long expected = generator.stream().mapToLong(invoice -> new StatementData(invoice, plays()).totalAmount())
+                .sum();
+        assertTrue(expected > Integer.MAX_VALUE);
+        assertEquals(expected, sequential.getTotal().getAmount());
+        assertEquals(expected, parallel.getTotal().getAmount());
+        assertEquals(sequential.getByCustomer().keySet(), parallel.getByCustomer().keySet());
+        assertEquals(sequential.getByCustomer().get("Customer-000007").getAmount(),
+                parallel.getByCustomer().get("Customer-000007").getAmount());
+        assertEquals(sequential.getByAudienceBand().keySet(), parallel.getByAudienceBand().keySet());
+    }
+
+    @Test
+    public void reportStreamsAsCsv() throws IOException {
+        Invoice invoice = new Invoice("Smith, Jones & Co", List.of(new Performance("hamlet", 10)));
+        RevenueReport report = new RevenueAnalytics(PlayCatalog.of(plays()), PricingRegistry.getDefault(),
+                new int[] {0, 100}).analyze(List.of(invoice));
+        StringBuilder csv = new StringBuilder();
+        report.writeCsv(csv);
+        List<String> lines = csv.toString().lines().collect(Collectors.toList());
+        assertEquals(List.of("dimension,key,performances,amount,volumeCredits",
+                "genre,tragedy,1,40000,0",
+                "play,hamlet,1,40000,0",
+                "customer,\"Smith, Jones & Co\",1,40000,0",
+                "audience,0-99,1,40000,0",
+                "audience,100+,0,0,0"), lines);
+    }
+}
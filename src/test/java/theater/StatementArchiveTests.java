@@ -0,0 +1,138 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class StatementArchiveTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        return plays;
+    }
+
+    private Path writeArchive(StatementArchiveWriter.Compression compression, List<Invoice> invoices,
+                              List<String> statements) throws IOException {
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays()).seed(13).invoices(400).customers(25).build();
+        Path file = folder.getRoot().toPath().resolve(compression + ".archive");
+        try (StatementArchiveWriter writer = StatementArchiveWriter.create(file, compression, 4096, 2)) {
+            for (long i = 0; i < generator.getInvoiceCount(); i++) {
+                Invoice invoice = generator.invoice(i);
+                String statement;
+                if (i % 2 == 0) {
+                    statement = new StatementPrinter(invoice, plays()).statement();
+                }
+                else {
+                    statement = new HTMLStatementPrinter(invoice, plays()).statement();
+                }
+                assertEquals(i, writer.append(invoice, statement));
+                invoices.add(invoice);
+                statements.add(statement);
+            }
+        }
+        return file;
+    }
+
+    private void assertRoundTrip(StatementArchiveWriter.Compression compression) throws IOException {
+        List<Invoice> invoices = new ArrayList<>();
+        List<String> statements = new ArrayList<>();
+        Path file = writeArchive(compression, invoices, statements);
+        try (StatementArchiveReader reader = StatementArchiveReader.open(file)) {
+            assertEquals(compression, reader.getCompression());
+            assertEquals(statements.size(), reader.getStatementCount());
+            for (int i = statements.size() - 1; i >= 0; i -= 7) {
+                assertEquals(statements.get(i), reader.read(i));
+                assertEquals(invoices.get(i).getCustomer(), reader.getCustomer(i));
+            }
+            String customer = invoices.get(3).getCustomer();
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < invoices.size(); i++) {
+                if (invoices.get(i).getCustomer().equals(customer)) {
+                    expected.add((long) i);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), reader.getStatements(customer));
+            assertEquals(0, reader.getStatements("Nobody").length);
+        }
+        long total = statements.stream().mapToLong(String::length).sum();
+        if (compression != StatementArchiveWriter.Compression.NONE) {
+            assertTrue(Files.size(file) * 3 < total);
+        }
+    }
+
+    @Test
+    public void uncompressedArchiveRoundTrips() throws IOException {
+        assertRoundTrip(StatementArchiveWriter.Compression.NONE);
+    }
+
+    @Test
+    public void deflateArchiveRoundTrips() throws IOException {
+        assertRoundTrip(StatementArchiveWriter.Compression.DEFLATE);
+    }
+
+    @Test
+    public void gzipArchiveRoundTrips() throws IOException {
+        assertRoundTrip(StatementArchiveWriter.Compression.GZIP);
+    }
+
+    @Test
+    public void unclosedArchiveIsRejected() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("open.archive");
+        try (StatementArchiveWriter writer = StatementArchiveWriter.create(file,
+                StatementArchiveWriter.Compression.DEFLATE)) {
+            writer.append("BigCo", "Statement for BigCo");
+            try {
+                StatementArchiveReader.open(file).close();
+                fail("expected an archive without an index to be rejected");
+            }
+            catch (IOException expected) {
+                // the index is only written on close
+            }
+        }
+        try (StatementArchiveReader reader = StatementArchiveReader.open(file)) {
+            assertEquals("Statement for BigCo", reader.read(0));
+        }
+    }
+
+    @Test
+    public void rewrittenArchiveDropsTheOldIndex() throws IOException {
+        List<Invoice> invoices = new ArrayList<>();
+        List<String> statements = new ArrayList<>();
+        Path file = writeArchive(StatementArchiveWriter.Compression.DEFLATE, invoices, statements);
+        try (StatementArchiveWriter writer = StatementArchiveWriter.create(file,
+                StatementArchiveWriter.Compression.DEFLATE)) {
+            writer.append("BigCo", "Statement for BigCo");
+            try {
+                StatementArchiveReader.open(file).close();
+                fail("expected the index of the earlier archive to be gone");
+            }
+            catch (IOException expected) {
+                // the new index is only written on close
+            }
+        }
+        try (StatementArchiveReader reader = StatementArchiveReader.open(file)) {
+            assertEquals(1, reader.getStatementCount());
+            assertEquals("Statement for BigCo", reader.read(0));
+        }
+    }
+}
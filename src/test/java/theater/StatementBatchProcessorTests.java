@@ -0,0 +1,65 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StatementBatchProcessorTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        return plays;
+    }
+
+    private static List<Invoice> invoices(int count) {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            invoices.add(new Invoice("Customer" + i, List.of(
+                    new Performance("hamlet", 20 + i % 50),
+                    new Performance("as-like", 10 + i % 40),
+                    new Performance("othello", i % 60))));
+        }
+        return invoices;
+    }
+
+    @Test
+    public void batchOutputMatchesSequentialOutputInOrder() {
+        Map<String, Play> plays = plays();
+        List<Invoice> invoices = invoices(1000);
+        List<String> expected = invoices.stream()
+                .map(invoice -> new HTMLStatementPrinter(invoice, plays).statement())
+                .collect(Collectors.toList());
+
+        try (StatementBatchProcessor processor =
+                     new StatementBatchProcessor(plays, HTMLStatementPrinter::new, 4)) {
+            StatementBatchProcessor.BatchResult result = processor.process(invoices);
+            assertEquals(expected, result.getStatements());
+            assertEquals(1000, result.getStatistics().getInvoiceCount());
+            assertEquals(4, result.getStatistics().getParallelism());
+        }
+    }
+
+    @Test
+    public void streamedBatchDeliversStatementsInOrder() {
+        Map<String, Play> plays = plays();
+        List<Invoice> invoices = invoices(1000);
+        List<String> expected = invoices.stream()
+                .map(invoice -> new StatementPrinter(invoice, plays).statement())
+                .collect(Collectors.toList());
+
+        List<String> actual = new ArrayList<>();
+        try (StatementBatchProcessor processor =
+                     new StatementBatchProcessor(plays, StatementPrinter::new, 3, 100)) {
+            StatementBatchProcessor.BatchStatistics statistics = processor.process(invoices.stream(), actual::add);
+            assertEquals(1000, statistics.getInvoiceCount());
+        }
+        assertEquals(expected, actual);
+    }
+}
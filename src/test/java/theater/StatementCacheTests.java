@@ -0,0 +1,149 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementCacheTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        return plays;
+    }
+
+    private static Invoice invoice(String customer, int audience) {
+        return new Invoice(customer, List.of(new Performance("hamlet", audience),
+                new Performance("as-like", 35), new Performance("othello", 40)));
+    }
+
+    @Test
+    public void equalInvoicesHitAndMatchThePrinters() {
+        StatementCache cache = new StatementCache();
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        String first = cache.statement(invoice("BigCo", 55), catalog, StatementTemplate.PLAIN_TEXT);
+        String second = cache.statement(invoice("BigCo", 55), catalog, StatementTemplate.PLAIN_TEXT);
+        String html = cache.statement(invoice("BigCo", 55), catalog, StatementTemplate.HTML);
+
+        assertEquals(new StatementPrinter(invoice("BigCo", 55), plays()).statement(), first);
+        assertSame(first, second);
+        assertEquals(new HTMLStatementPrinter(invoice("BigCo", 55), plays()).statement(), html);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+        assertEquals(first.length() + html.length(), cache.getWeight());
+
+        cache.statement(invoice("BigCo", 56), catalog, StatementTemplate.PLAIN_TEXT);
+        cache.statement(invoice("SmallCo", 55), catalog, StatementTemplate.PLAIN_TEXT);
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByWeight() {
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        int length = new StatementPrinter(invoice("A", 10), plays()).statement().length();
+        StatementCache cache = new StatementCache(2L * length);
+        cache.statement(invoice("A", 10), catalog, StatementTemplate.PLAIN_TEXT);
+        cache.statement(invoice("B", 10), catalog, StatementTemplate.PLAIN_TEXT);
+        cache.statement(invoice("A", 10), catalog, StatementTemplate.PLAIN_TEXT);
+        cache.statement(invoice("C", 10), catalog, StatementTemplate.PLAIN_TEXT);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertTrue(cache.getWeight() <= 2L * length);
+        long hits = cache.getHitCount();
+        cache.statement(invoice("A", 10), catalog, StatementTemplate.PLAIN_TEXT);
+        assertEquals(hits + 1, cache.getHitCount());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void changedPlaysAreNotServedFromCache() {
+        StatementCache cache = new StatementCache();
+        Map<String, Play> plays = plays();
+        plays.put("hamlet", new Play("Aa", "tragedy"));
+        String before = cache.statement(invoice("BigCo", 55), PlayCatalog.of(plays), StatementTemplate.PLAIN_TEXT);
+        // "Aa" and "BB" have the same String hash code
+        plays.put("hamlet", new Play("BB", "tragedy"));
+        String after = cache.statement(invoice("BigCo", 55), PlayCatalog.of(plays), StatementTemplate.PLAIN_TEXT);
+
+        assertNotEquals(before, after);
+        assertTrue(after.contains("BB"));
+        assertEquals(0, cache.getHitCount());
+        // the statement of the replaced catalog no longer takes up room
+        assertEquals(1, cache.size());
+        assertEquals(after.length(), cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void olderCatalogsAreNotStored() {
+        StatementCache cache = new StatementCache();
+        PlayCatalog older = PlayCatalog.of(plays());
+        PlayCatalog newer = PlayCatalog.of(plays());
+        cache.statement(invoice("BigCo", 55), newer, StatementTemplate.PLAIN_TEXT);
+        String stale = cache.statement(invoice("BigCo", 55), older, StatementTemplate.PLAIN_TEXT);
+
+        assertEquals(new StatementPrinter(invoice("BigCo", 55), plays()).statement(), stale);
+        assertEquals(1, cache.size());
+        cache.statement(invoice("BigCo", 55), newer, StatementTemplate.PLAIN_TEXT);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void invoicesWithoutCustomerAreCached() {
+        StatementCache cache = new StatementCache();
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        String first = cache.statement(invoice(null, 55), catalog, StatementTemplate.PLAIN_TEXT);
+        String second = cache.statement(invoice(null, 55), catalog, StatementTemplate.PLAIN_TEXT);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void concurrentLookupsAgreeWithThePrinter() throws Exception {
+        StatementCache cache = new StatementCache();
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        Invoice invoice = invoice("Customer-" + i % 20, i % 7);
+                        assertEquals(new StatementPrinter(invoice, plays()).statement(),
+                                cache.statement(invoice, catalog, StatementTemplate.PLAIN_TEXT));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        assertEquals(2000, cache.getHitCount() + cache.getMissCount());
+        assertEquals(140, cache.size());
+    }
+}
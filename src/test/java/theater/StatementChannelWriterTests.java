@@ -0,0 +1,69 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StatementChannelWriterTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        return plays;
+    }
+
+    @Test
+    public void channelOutputMatchesStatement() throws IOException {
+        Map<String, Play> plays = plays();
+        Invoice invoice = new Invoice("Café Größe", List.of(new Performance("hamlet", 55),
+                new Performance("as-like", 35)));
+        StatementPrinter printer = new StatementPrinter(invoice, plays);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        printer.render(new StatementData(invoice, plays), Channels.newChannel(bytes));
+
+        assertEquals(printer.statement(), bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void repeatedChannelRendersEachGetTheirOwnStatement() throws IOException {
+        Map<String, Play> plays = plays();
+        for (int i = 0; i < 3; i++) {
+            Invoice invoice = new Invoice("Customer " + i, List.of(new Performance("hamlet", 10 * i)));
+            StatementPrinter printer = new HTMLStatementPrinter(invoice, plays);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            printer.render(new StatementData(invoice, plays), Channels.newChannel(bytes));
+            assertEquals(printer.statement(), bytes.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void writerIsReusedAcrossStatementsWithSmallBuffer() throws IOException {
+        Map<String, Play> plays = plays();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(bytes);
+        StatementChannelWriter writer = new StatementChannelWriter(channel, StandardCharsets.UTF_8, 7);
+        StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 20; i++) {
+            Invoice invoice = new Invoice("Customer " + i, List.of(new Performance("hamlet", i),
+                    new Performance("as-like", 2 * i)));
+            StatementPrinter printer = new HTMLStatementPrinter(invoice, plays);
+            printer.render(new StatementData(invoice, plays), writer);
+            expected.append(printer.statement());
+        }
+        writer.flush();
+
+        assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+        assertEquals(bytes.size(), writer.getBytesWritten());
+    }
+}
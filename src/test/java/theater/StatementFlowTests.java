@@ -0,0 +1,214 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementFlowTests {
+
+    private static Map<String, Play> plays() {
+        return Map.of("hamlet", new Play("Hamlet", "tragedy"),
+                "as-like", new Play("As You Like It", "comedy"),
+                "othello", new Play("Othello", "tragedy"));
+    }
+
+    /**
+     * Subscriber that requests one item at a time, sleeping after each one.
+     */
+    private static final class SlowSubscriber<T> implements Flow.Subscriber<T> {
+
+        private final List<T> received = new ArrayList<>();
+        private final AtomicInteger count = new AtomicInteger();
+        private final CompletableFuture<List<T>> done = new CompletableFuture<>();
+        private final long delayMillis;
+        private Flow.Subscription subscription;
+
+        SlowSubscriber(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription value) {
+            subscription = value;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(T item) {
+            received.add(item);
+            count.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(received);
+        }
+    }
+
+    @Test
+    public void statementsArriveInOrderWithParallelPricing() throws Exception {
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays()).seed(5).invoices(2000).build();
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try (SubmissionPublisher<Invoice> source = new SubmissionPublisher<>()) {
+            Flow.Processor<Invoice, String> statements =
+                    StatementFlow.statements(catalog, StatementTemplate.PLAIN_TEXT, workers, 4);
+            SlowSubscriber<String> sink = new SlowSubscriber<>(0);
+            statements.subscribe(sink);
+            source.subscribe(statements);
+            generator.stream().forEach(source::submit);
+            source.close();
+
+            List<String> expected = generator.stream()
+                    .map(invoice -> new StatementPrinter(invoice, plays()).statement())
+                    .collect(Collectors.toList());
+            assertEquals(expected, sink.done.get(30, TimeUnit.SECONDS));
+        }
+        finally {
+            workers.shutdown();
+        }
+    }
+
+    @Test
+    public void slowSinkThrottlesSource() throws Exception {
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        int bufferSize = 4;
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        ExecutorService delivery = Executors.newCachedThreadPool();
+        int maxLag = 0;
+        try (SubmissionPublisher<String> source = new SubmissionPublisher<>(delivery, bufferSize)) {
+            Flow.Processor<String, Invoice> parse = StatementFlow.parse(catalog, bufferSize);
+            Flow.Processor<Invoice, StatementData> price = StatementFlow.price(catalog, workers, 2, bufferSize);
+            Flow.Processor<StatementModel, String> render = StatementFlow.render(StatementTemplate.HTML, bufferSize);
+            SlowSubscriber<String> sink = new SlowSubscriber<>(2);
+            render.subscribe(sink);
+            price.subscribe(render);
+            parse.subscribe(price);
+            source.subscribe(parse);
+
+            String json = "{\"customer\": \"BigCo\", \"performances\": [{\"playID\": \"hamlet\", \"audience\": 55}]}";
+            for (int i = 0; i < 200; i++) {
+                source.submit(json);
+                maxLag = Math.max(maxLag, i + 1 - sink.count.get());
+            }
+            source.close();
+            assertEquals(200, sink.done.get(30, TimeUnit.SECONDS).size());
+            // the source can only run ahead by what the bounded stage buffers hold
+            assertTrue("lag " + maxLag, maxLag <= 6 * bufferSize + 2);
+        }
+        finally {
+            workers.shutdown();
+            delivery.shutdown();
+        }
+    }
+
+    @Test
+    public void fullDownstreamBufferDoesNotBlockUpstream() throws Exception {
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        Invoice invoice = InvoiceGenerator.builder(plays()).seed(3).invoices(1).build().stream()
+                .findFirst().orElseThrow();
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        ExecutorService delivery = Executors.newCachedThreadPool();
+        ExecutorService upstream = Executors.newSingleThreadExecutor();
+        CompletableFuture<Flow.Subscription> sinkSubscription = new CompletableFuture<>();
+        CompletableFuture<Void> sinkDone = new CompletableFuture<>();
+        AtomicInteger received = new AtomicInteger();
+        try (OrderedPricingStage stage = new OrderedPricingStage(each -> new StatementData(each, catalog), workers,
+                4, delivery, 1)) {
+            // the sink requests nothing until upstream is done, so priced invoices wait for buffer room
+            stage.subscribe(new Flow.Subscriber<StatementData>() {
+                @Override
+                public void onSubscribe(Flow.Subscription value) {
+                    sinkSubscription.complete(value);
+                }
+
+                @Override
+                public void onNext(StatementData item) {
+                    received.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    sinkDone.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    sinkDone.complete(null);
+                }
+            });
+            upstream.submit(() -> {
+                stage.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                for (int i = 0; i < 4; i++) {
+                    stage.onNext(invoice);
+                }
+                stage.onComplete();
+            }).get(5, TimeUnit.SECONDS);
+
+            sinkSubscription.get(5, TimeUnit.SECONDS).request(Long.MAX_VALUE);
+            sinkDone.get(30, TimeUnit.SECONDS);
+            assertEquals(4, received.get());
+        }
+        finally {
+            workers.shutdown();
+            delivery.shutdown();
+            upstream.shutdown();
+        }
+    }
+
+    @Test
+    public void malformedJsonFailsThePipeline() throws Exception {
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        try (SubmissionPublisher<String> source = new SubmissionPublisher<>()) {
+            Flow.Processor<String, Invoice> parse = StatementFlow.parse(catalog, StatementFlow.DEFAULT_BUFFER_SIZE);
+            SlowSubscriber<Invoice> sink = new SlowSubscriber<>(0);
+            parse.subscribe(sink);
+            source.subscribe(parse);
+            source.submit("{\"customer\": ");
+            try {
+                sink.done.get(30, TimeUnit.SECONDS);
+            }
+            catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof IOException);
+                return;
+            }
+            throw new AssertionError("expected the pipeline to fail");
+        }
+    }
+}
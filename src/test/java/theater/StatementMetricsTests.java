@@ -0,0 +1,116 @@
+package theater;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementMetricsTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        return plays;
+    }
+
+    private static Invoice invoice() {
+        return new Invoice("BigCo", List.of(new Performance("hamlet", 55),
+                new Performance("as-like", 35), new Performance("hamlet", 20)));
+    }
+
+    @After
+    public void uninstall() {
+        Metrics.setRecorder(null);
+    }
+
+    @Test
+    public void noopIsTheDefault() {
+        assertSame(MetricsRecorder.NOOP, Metrics.recorder());
+    }
+
+    @Test
+    public void printersReportToInstalledRecorder() throws IOException {
+        StatementMetrics metrics = new StatementMetrics();
+        Metrics.setRecorder(metrics);
+        String text = new StatementPrinter(invoice(), plays()).statement();
+        String html = new HTMLStatementPrinter(invoice(), plays()).statement();
+
+        assertEquals(2, metrics.getInvoicesRendered());
+        assertEquals(text.length() + html.length(), metrics.getCharactersRendered());
+        assertEquals(Long.valueOf(4), metrics.getPerformancesPriced().get("tragedy"));
+        assertEquals(Long.valueOf(2), metrics.getPerformancesPriced().get("comedy"));
+        assertEquals(2, metrics.getComputeNanos().getCount());
+        assertEquals(2, metrics.getRenderNanos().getCount());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new StatementPrinter(invoice(), plays()).render(new StatementData(invoice(), plays()),
+                Channels.newChannel(bytes));
+        assertEquals(bytes.size(), metrics.getBytesWritten());
+
+        assertEquals(Long.valueOf(3), metrics.getPerformancesPriced().get("comedy"));
+    }
+
+    @Test
+    public void everyStatementModelReportsPricedPerformances() {
+        StatementMetrics metrics = new StatementMetrics();
+        Metrics.setRecorder(metrics);
+        new ColumnarStatementData(invoice(), plays());
+        new ColumnarStatementData(invoice(), PlayCatalog.of(plays()), PricingRegistry.getDefault());
+        new StatementService(PlayCatalog.of(plays())).statement(invoice());
+        IncrementalStatement incremental = new IncrementalStatement("BigCo", plays());
+        incremental.add(new Performance("as-like", 35));
+        assertEquals(Long.valueOf(6), metrics.getPerformancesPriced().get("tragedy"));
+        assertEquals(Long.valueOf(4), metrics.getPerformancesPriced().get("comedy"));
+
+        // pricing without building a statement is not counted
+        AbstractPerformanceCalculator.createPerformanceCalculator(new Performance("as-like", 10),
+                plays().get("as-like")).amountFor();
+        StatementTotals.of(invoice(), plays());
+        new StatementPrinter(invoice(), plays()).getTotalAmount();
+        assertEquals(Long.valueOf(6), metrics.getPerformancesPriced().get("tragedy"));
+        assertEquals(Long.valueOf(4), metrics.getPerformancesPriced().get("comedy"));
+    }
+
+    @Test
+    public void snapshotIsExportedToFileAndJmx() throws Exception {
+        StatementMetrics metrics = new StatementMetrics();
+        Metrics.setRecorder(metrics);
+        new StatementPrinter(invoice(), plays()).statement();
+
+        Path file = Files.createTempFile("statement-metrics", ".properties");
+        try {
+            MetricsExporter.writeSnapshot(metrics, file);
+            String snapshot = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            assertTrue(snapshot.contains("invoices.rendered=1"));
+            assertTrue(snapshot.contains("performances.priced.tragedy=2"));
+            assertTrue(snapshot.contains("render.nanos.count=1"));
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+
+        ObjectName name = MetricsExporter.registerMBean(metrics);
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "InvoicesRendered"));
+        }
+        finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package theater;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StatementRenderPipelineTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It, \"Act 1\"", "comedy"));
+        return plays;
+    }
+
+    private static Invoice invoice() {
+        return new Invoice("BigCo", List.of(new Performance("hamlet", 55), new Performance("as-like", 35)));
+    }
+
+    @After
+    public void uninstall() {
+        Metrics.setRecorder(null);
+    }
+
+    @Test
+    public void textAndHtmlMatchPrinters() {
+        Map<String, String> statements = StatementRenderPipeline.standard().render(invoice(), plays());
+        assertEquals(List.of("text", "html", "csv", "json"), List.copyOf(statements.keySet()));
+        assertEquals(new StatementPrinter(invoice(), plays()).statement(), statements.get("text"));
+        assertEquals(new HTMLStatementPrinter(invoice(), plays()).statement(), statements.get("html"));
+    }
+
+    @Test
+    public void csvAndJsonCarryEveryLine() {
+        Map<String, String> statements = StatementRenderPipeline.standard()
+                .render(invoice(), PlayCatalog.of(plays()));
+
+        List<String> rows = statements.get("csv").lines().collect(Collectors.toList());
+        assertEquals(List.of("customer,play,type,audience,amount,volumeCredits",
+                "BigCo,Hamlet,tragedy,55,650.00,25",
+                "BigCo,\"As You Like It, \"\"Act 1\"\"\",comedy,35,580.00,12"), rows);
+
+        JSONObject json = new JSONObject(statements.get("json"));
+        assertEquals("BigCo", json.getString("customer"));
+        assertEquals(123000, json.getInt("totalAmount"));
+        assertEquals(37, json.getInt("volumeCredits"));
+        JSONArray performances = json.getJSONArray("performances");
+        assertEquals("As You Like It, \"Act 1\"", performances.getJSONObject(1).getString("play"));
+        assertEquals(58000, performances.getJSONObject(1).getInt("amount"));
+    }
+
+    @Test
+    public void statementDataIsPricedOnce() {
+        StatementMetrics metrics = new StatementMetrics();
+        Metrics.setRecorder(metrics);
+        StatementRenderPipeline.standard().render(invoice(), plays());
+        assertEquals(Long.valueOf(1), metrics.getPerformancesPriced().get("tragedy"));
+    }
+}
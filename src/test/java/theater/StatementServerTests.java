@@ -0,0 +1,143 @@
+package theater;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class StatementServerTests {
+
+    private static final String INVOICE = "{\"customer\": \"BigCo\", \"performances\": ["
+            + "{\"playID\": \"hamlet\", \"audience\": 55}, {\"playID\": \"as-like\", \"audience\": 35}]}";
+
+    private static Map<String, Play> plays;
+    private static StatementServer server;
+
+    @BeforeClass
+    public static void start() throws IOException {
+        try (InputStream input = StatementServerTests.class.getResourceAsStream("/plays.json")) {
+            plays = InvoiceJsonReader.readPlays(input);
+        }
+        server = StatementServer.start(new InetSocketAddress("localhost", 0), PlayCatalog.of(plays));
+    }
+
+    @AfterClass
+    public static void stop() {
+        server.close();
+    }
+
+    private static Invoice invoice() {
+        return new Invoice("BigCo", List.of(new Performance("hamlet", 55), new Performance("as-like", 35)));
+    }
+
+    private static HttpURLConnection post(String accept, String body) throws IOException {
+        return post(server, accept, body, false);
+    }
+
+    private static HttpURLConnection post(StatementServer server, String accept, String body, boolean chunked)
+            throws IOException {
+        URL url = new URL("http", "localhost", server.getAddress().getPort(), StatementServer.PATH);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if (chunked) {
+            connection.setChunkedStreamingMode(16);
+        }
+        if (accept != null) {
+            connection.setRequestProperty("Accept", accept);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        InputStream input = connection.getResponseCode() < 400
+                ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        input.transferTo(bytes);
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void plainTextWinsForWildcard() throws IOException {
+        HttpURLConnection connection = post("*/*", INVOICE);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/plain; charset=utf-8", connection.getContentType());
+        assertEquals(String.valueOf(server.getCatalog().getVersion()),
+                connection.getHeaderField(StatementServer.CATALOG_VERSION_HEADER));
+        assertEquals(new StatementPrinter(invoice(), plays).statement(), read(connection));
+    }
+
+    @Test
+    public void htmlIsNegotiated() throws IOException {
+        HttpURLConnection connection = post("text/plain;q=0.5, text/html", "[" + INVOICE + "]");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/html; charset=utf-8", connection.getContentType());
+        assertEquals(new HTMLStatementPrinter(invoice(), plays).statement(), read(connection));
+    }
+
+    @Test
+    public void errorsAreReportedWithStatusCodes() throws IOException {
+        assertEquals(406, post("application/json", INVOICE).getResponseCode());
+        assertEquals(400, post(null, "{\"customer\": ").getResponseCode());
+        assertEquals(422, post(null, INVOICE.replace("hamlet", "macbeth")).getResponseCode());
+    }
+
+    @Test
+    public void acceptHeaderIsNegotiatedByQuality() {
+        assertEquals(StatementServer.TEXT_PLAIN, StatementServer.negotiate("*/*"));
+        assertEquals(StatementServer.TEXT_HTML, StatementServer.negotiate("text/html, text/plain;q=0.9"));
+        assertEquals(StatementServer.TEXT_PLAIN, StatementServer.negotiate("text/html;q=0.1, text/*"));
+        assertNull(StatementServer.negotiate("application/pdf"));
+    }
+
+    @Test
+    public void mostSpecificRangeDecidesEachType() {
+        assertEquals(StatementServer.TEXT_HTML, StatementServer.negotiate("text/plain;q=0, */*;q=0.1"));
+        assertEquals(StatementServer.TEXT_HTML, StatementServer.negotiate("*/*, text/plain;q=0.2, text/*;q=0.5"));
+        assertEquals(StatementServer.TEXT_PLAIN, StatementServer.negotiate("text/*;q=0, text/plain"));
+        assertNull(StatementServer.negotiate("text/plain;q=0, text/html;q=0, */*"));
+    }
+
+    @Test
+    public void unknownTypeIsUnprocessable() throws IOException {
+        Map<String, Play> operas = Map.of("hamlet", new Play("Hamlet", "opera"),
+                "as-like", new Play("As You Like It", "comedy"));
+        try (StatementServer operaServer = StatementServer.start(new InetSocketAddress("localhost", 0),
+                PlayCatalog.of(operas))) {
+            HttpURLConnection connection = post(operaServer, null, INVOICE, false);
+            assertEquals(422, connection.getResponseCode());
+            assertEquals("unknown type: opera" + System.lineSeparator(), read(connection));
+        }
+    }
+
+    @Test
+    public void oversizedBodiesAreRejected() throws IOException {
+        System.setProperty(StatementServer.MAX_BODY_BYTES_PROPERTY, "64");
+        try (StatementServer small = StatementServer.start(new InetSocketAddress("localhost", 0),
+                PlayCatalog.of(plays))) {
+            assertEquals(413, post(small, null, INVOICE, false).getResponseCode());
+            assertEquals(413, post(small, null, INVOICE, true).getResponseCode());
+            assertEquals(400, post(small, null, "{\"customer\": ", true).getResponseCode());
+        }
+        finally {
+            System.clearProperty(StatementServer.MAX_BODY_BYTES_PROPERTY);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+
+public class StatementServiceTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        plays.put("as-foo", new Play("As Foo", "pastoral"));
+        return plays;
+    }
+
+    @Test
+    public void matchesThePrintersForTheExampleInvoices() throws IOException {
+        List<Invoice> invoices = new ArrayList<>();
+        Map<String, Play> plays;
+        try (InputStream input = getClass().getResourceAsStream("/plays.json")) {
+            plays = InvoiceJsonReader.readPlays(input);
+        }
+        try (InputStream input = getClass().getResourceAsStream("/invoices.json")) {
+            InvoiceJsonReader.readInvoices(input, invoices::add);
+        }
+        StatementService service = new StatementService(plays);
+        for (Invoice invoice : invoices) {
+            assertEquals(new StatementPrinter(invoice, plays).statement(), service.statement(invoice));
+            assertEquals(new HTMLStatementPrinter(invoice, plays).statement(), service.htmlStatement(invoice));
+        }
+    }
+
+    @Test
+    public void reusedScratchMatchesThePrintersAcrossThreads() throws Exception {
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays()).seed(3).invoices(2000)
+                .performancesPerInvoice(InvoiceGenerator.IntDistribution.uniform(0, 40)).build();
+        StatementService service = new StatementService(plays());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (long i = offset; i < generator.getInvoiceCount(); i += 4) {
+                        Invoice invoice = generator.invoice(i);
+                        assertEquals(new StatementPrinter(invoice, plays()).statement(), service.statement(invoice));
+                        assertEquals(new HTMLStatementPrinter(invoice, plays()).statement(),
+                                service.htmlStatement(invoice));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void hugeInvoiceDoesNotDisturbLaterStatements() {
+        StatementService service = new StatementService(PlayCatalog.of(plays()));
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            performances.add(new Performance(i % 2 == 0 ? "hamlet" : "as-like", i % 60));
+        }
+        Invoice huge = new Invoice("MegaCorp", performances);
+        Invoice small = new Invoice("BigCo", List.of(new Performance("othello", 40)));
+
+        assertEquals(new StatementPrinter(huge, plays()).statement(), service.statement(huge));
+        assertEquals(new StatementPrinter(small, plays()).statement(), service.statement(small));
+        assertEquals(new StatementPrinter(huge, plays()).statement(), service.statement(huge));
+    }
+
+    @Test
+    public void unknownPlaysAndTypesAreReported() {
+        Map<String, Play> plays = plays();
+        plays.put("cats", new Play("Cats", "opera"));
+        StatementService service = new StatementService(plays);
+        try {
+            service.statement(new Invoice("BigCo", List.of(new Performance("macbeth", 10))));
+            fail("expected an unknown play to be rejected");
+        }
+        catch (UnknownPlayException expected) {
+            assertEquals("unknown play: macbeth", expected.getMessage());
+        }
+        try {
+            service.statement(new Invoice("BigCo", List.of(new Performance("cats", 10))));
+            fail("expected an unknown type to be rejected");
+        }
+        catch (UnknownPlayTypeException expected) {
+            assertEquals("unknown type: opera", expected.getMessage());
+        }
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55)));
+        assertEquals(new StatementPrinter(invoice, plays()).statement(), service.statement(invoice));
+    }
+}
@@ -0,0 +1,116 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class StatementTotalsTests {
+
+    private static Map<String, Play> plays() {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("henry-v", new Play("Henry V", "history"));
+        plays.put("as-foo", new Play("As Foo", "pastoral"));
+        return plays;
+    }
+
+    @Test
+    public void totalsMatchStatementData() {
+        InvoiceGenerator generator = InvoiceGenerator.builder(plays()).seed(17).invoices(500).build();
+        PlayCatalog catalog = PlayCatalog.of(plays());
+        for (long i = 0; i < generator.getInvoiceCount(); i++) {
+            Invoice invoice = generator.invoice(i);
+            StatementData expected = new StatementData(invoice, plays());
+            StatementTotals fromMap = StatementTotals.of(invoice, plays());
+            StatementTotals fromCatalog = StatementTotals.of(invoice, catalog);
+            assertEquals(expected.totalAmount(), fromMap.getAmount());
+            assertEquals(expected.volumeCredits(), fromMap.getVolumeCredits());
+            assertEquals(expected.totalAmount(), fromCatalog.getAmount());
+            assertEquals(expected.volumeCredits(), fromCatalog.getVolumeCredits());
+
+            StatementPrinter printer = new StatementPrinter(invoice, plays());
+            assertEquals(expected.totalAmount(), printer.getTotalAmount());
+            assertEquals(expected.volumeCredits(), printer.getTotalVolumeCredits());
+        }
+    }
+
+    @Test
+    public void largeInvoicesDoNotOverflow() {
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            performances.add(new Performance("hamlet", 100_000));
+        }
+        Invoice invoice = new Invoice("MegaCorp", performances);
+        StatementTotals totals = StatementTotals.of(invoice, PlayCatalog.of(plays()));
+        long perPerformance = StatementTotals.of(new Invoice("MegaCorp", performances.subList(0, 1)), plays())
+                .getAmount();
+
+        assertTrue(totals.getAmount() > Integer.MAX_VALUE);
+        assertEquals(2000 * perPerformance, totals.getAmount());
+        try {
+            new StatementPrinter(invoice, plays()).getTotalAmount();
+            fail("expected an int total that overflows to be rejected");
+        }
+        catch (ArithmeticException expected) {
+            // callers that need large totals use StatementTotals
+        }
+    }
+
+    @Test
+    public void printerComputesItsTotalsOnce() {
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55), new Performance("as-like", 35)));
+        int[] calls = new int[1];
+        StatementPrinter printer = new StatementPrinter(invoice, PlayCatalog.of(plays())) {
+            @Override
+            protected StatementTotals getTotals() {
+                calls[0]++;
+                return super.getTotals();
+            }
+        };
+        StatementData expected = new StatementData(invoice, plays());
+        assertEquals(expected.totalAmount(), printer.getTotalAmount());
+        assertEquals(expected.volumeCredits(), printer.getTotalVolumeCredits());
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void overriddenHooksStillDriveTheTotals() {
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55), new Performance("as-like", 35)));
+        StatementPrinter printer = new StatementPrinter(invoice, plays()) {
+            @Override
+            protected int getAmount(Performance performance) {
+                return 100;
+            }
+        };
+        assertEquals(200, printer.getTotalAmount());
+        assertEquals(new StatementData(invoice, plays()).volumeCredits(), printer.getTotalVolumeCredits());
+    }
+
+    @Test
+    public void unknownPlaysAreReported() {
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("macbeth", 10)));
+        try {
+            StatementTotals.of(invoice, plays());
+            fail("expected an unknown play to be rejected");
+        }
+        catch (UnknownPlayException expected) {
+            assertEquals("unknown play: macbeth", expected.getMessage());
+        }
+        try {
+            StatementTotals.of(invoice, PlayCatalog.of(plays()));
+            fail("expected an unknown play to be rejected");
+        }
+        catch (UnknownPlayException expected) {
+            assertEquals("unknown play: macbeth", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package theater;
+
+import org.junit.Test;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class UsdFormatterTests {
+
+    @Test
+    public void matchesNumberFormatForWholeDollars() {
+        NumberFormat format = NumberFormat.getCurrencyInstance(Locale.US);
+        int[] amounts = {0, 5, 99, 100, 65000, 173000, 99999, 100000, 123456789, -1, -99, -100, -123456,
+                Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int amount : amounts) {
+            assertEquals(format.format(amount / Constants.PERCENT_FACTOR), UsdFormatter.format(amount));
+        }
+    }
+
+    @Test
+    public void appendsPlainIntegers() throws Exception {
+        StringBuilder out = new StringBuilder();
+        UsdFormatter.appendInteger(out, 0);
+        out.append(' ');
+        UsdFormatter.appendInteger(out, 47);
+        out.append(' ');
+        UsdFormatter.appendInteger(out, -12345);
+        out.append(' ');
+        UsdFormatter.appendInteger(out, Long.MAX_VALUE);
+        assertEquals("0 47 -12345 " + Long.MAX_VALUE, out.toString());
+    }
+}
@@ -0,0 +1,85 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class VersionedPlayCatalogTests {
+
+    private static Map<String, Play> readPlays(String resource) throws IOException {
+        try (InputStream input = VersionedPlayCatalogTests.class.getResourceAsStream(resource)) {
+            return InvoiceJsonReader.readPlays(input);
+        }
+    }
+
+    @Test
+    public void snapshotsDoNotChangeWhenNewPlaysArePublished() throws IOException {
+        VersionedPlayCatalog catalog = new VersionedPlayCatalog(readPlays("/plays.json"));
+        VersionedPlayCatalog.Snapshot before = catalog.snapshot();
+        VersionedPlayCatalog.Snapshot after = catalog.putAll(readPlays("/new_plays.json"));
+
+        assertEquals(1, before.getVersion());
+        assertEquals(2, after.getVersion());
+        assertEquals(2, catalog.getVersion());
+        assertSame(after, catalog.snapshot());
+        assertNull(before.getCatalog().getPlay("henry-v"));
+        assertEquals("comedy", before.asMap().get("as-like").getType());
+        assertEquals("history", after.getCatalog().getPlay("henry-v").getType());
+        assertEquals("pastoral", after.asMap().get("as-like").getType());
+        assertEquals("tragedy", after.asMap().get("hamlet").getType());
+    }
+
+    @Test
+    public void conditionalPublishFailsOnStaleSnapshot() throws IOException {
+        VersionedPlayCatalog catalog = new VersionedPlayCatalog(readPlays("/plays.json"));
+        VersionedPlayCatalog.Snapshot stale = catalog.snapshot();
+        catalog.publish(readPlays("/new_plays.json"));
+
+        assertNull(catalog.publish(stale, readPlays("/plays.json")));
+        assertEquals(2, catalog.getVersion());
+        assertEquals(3, catalog.publish(catalog.snapshot(), readPlays("/plays.json")).getVersion());
+    }
+
+    @Test
+    public void concurrentUpdatesAreNotLost() throws Exception {
+        VersionedPlayCatalog catalog = new VersionedPlayCatalog(readPlays("/plays.json"));
+        int initial = catalog.snapshot().getCatalog().size();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int writer = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        catalog.putAll(Map.of("play-" + writer + "-" + i, new Play("Play", "comedy")));
+                        VersionedPlayCatalog.Snapshot snapshot = catalog.snapshot();
+                        assertTrue(snapshot.getCatalog().size() >= initial + i + 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        assertEquals(201, catalog.getVersion());
+        assertEquals(initial + 200, catalog.snapshot().getCatalog().size());
+    }
+}